@@ -1,11 +1,195 @@
 // app/build.gradle.kts
 import com.android.build.gradle.internal.cxx.configure.gradleLocalProperties
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 
 plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.google.gms.google.services)
 }
 
+/**
+ * Converts the intent classifier JSON asset into the binary layout read by IntentModelFormat
+ * (keep the two in sync), so the app maps the model instead of parsing the JSON on startup.
+ * Nodes and vocabulary shapes are looked up as IntentLocalClassifier.fromJson does; a model it
+ * cannot read the same way fails the build.
+ */
+abstract class ConvertIntentModelTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val jsonModel: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun convert() {
+        val out = outputDir.get().asFile
+        out.mkdirs()
+        val src = jsonModel.get().asFile
+
+        @Suppress("UNCHECKED_CAST")
+        val root = groovy.json.JsonSlurper().parse(src) as Map<String, Any?>
+        @Suppress("UNCHECKED_CAST")
+        fun node(vararg keys: String) = keys.firstNotNullOfOrNull { root[it] as? Map<String, Any?> } ?: root
+        val vec = node("vectorizer", "tfidf", "vec")
+        val clf = node("classifier", "model", "clf")
+
+        val nested = vec["vectorizer"] as? Map<*, *>
+        val voc = vec["vocab"] ?: vec["vocabulary"] ?: vec["token2id"]
+            ?: nested?.let { it["vocabulary"] ?: it["vocab"] ?: it["token2id"] }
+            ?: root["vocab"] ?: root["vocabulary"] ?: root["token2id"]
+            ?: error("${src.name}: missing vocabulary (vocab/vocabulary/token2id)")
+        val columns = vocabColumns(voc, src.name)
+        val nFeatures = (columns.values.maxOrNull() ?: -1) + 1
+        val terms = arrayOfNulls<String>(nFeatures)
+        columns.forEach { (term, idx) -> if (idx >= 0) terms[idx] = term }
+
+        val classes = ((clf["classes"] ?: root["classes"]) as? List<*>)?.map { it.toString() }
+            ?: error("${src.name}: missing classes")
+        val nClasses = classes.size
+        // like the app, an idf or intercept of the wrong length is ignored
+        val idf = ((vec["idf"] ?: root["idf"]) as List<*>?)?.map { (it as Number).toDouble() }
+            ?.takeIf { it.size == nFeatures } ?: List(nFeatures) { 1.0 }
+        val coef = ((clf["coef"] ?: root["coef"] ?: clf["coefficients"]) as List<*>)
+            .map { row -> (row as List<*>).map { (it as Number).toDouble() } }
+        val intercept = ((clf["intercept"] ?: root["intercept"] ?: clf["bias"]) as List<*>?)
+            ?.map { (it as Number).toDouble() }?.takeIf { it.size == nClasses } ?: List(nClasses) { 0.0 }
+        check(coef.size == nClasses && coef.all { it.size == nFeatures }) {
+            "${src.name}: coef is not [${nClasses}][${nFeatures}] (classes x vocabulary terms)"
+        }
+        // a null is an index no term maps to; "[tok, 12]" is a stringified [term, index] pair
+        val bad = terms.indexOfFirst { it == null || it.matches(Regex("""\[.*, ?\d+]""")) }
+        check(bad < 0) { "${src.name}: vocabulary column $bad has ${terms[bad]?.let { "term $it" } ?: "no term"}" }
+
+        val analyzer = (vec["analyzer"] ?: root["analyzer"]) as String?
+        val starts = IntArray(nFeatures + 1)
+        for (i in 0 until nFeatures) starts[i + 1] = starts[i] + (terms[i]?.length ?: 0)
+        val poolLen = starts[nFeatures]
+
+        val size = 4 * 8 + 4 * (nFeatures + 1) + 2 * poolLen + classes.sumOf { 4 + 2 * it.length } +
+                4 * (nFeatures + nFeatures * nClasses + nClasses)
+        val b = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+        b.putInt(0x454C4943).putInt(2)                         // "ELIC", version 2
+        b.putInt(nClasses).putInt(nFeatures)
+        b.putInt(((if ("ngram_min" in vec) vec else root)["ngram_min"] as Number?)?.toInt() ?: 3)
+        b.putInt(((if ("ngram_max" in vec) vec else root)["ngram_max"] as Number?)?.toInt() ?: 5)
+        b.putInt(if (analyzer.equals("word", ignoreCase = true)) 1 else 0)
+        b.putInt(poolLen)
+        for (c in classes) {
+            b.putInt(c.length)
+            c.forEach { b.putChar(it) }
+        }
+        starts.forEach { b.putInt(it) }
+        terms.forEach { t -> t?.forEach { b.putChar(it) } }
+        // weights as float32, like IntentModelFormat.write
+        idf.forEach { b.putFloat(it.toFloat()) }
+        for (f in 0 until nFeatures) for (c in 0 until nClasses) b.putFloat(coef[c][f].toFloat())   // feature-major
+        intercept.forEach { b.putFloat(it.toFloat()) }
+
+        File(out, src.nameWithoutExtension + ".bin").writeBytes(b.array())
+    }
+
+    /** term -> column for the shapes IntentLocalClassifier.loadVocabulary accepts. */
+    private fun vocabColumns(voc: Any, name: String): Map<String, Int> {
+        fun column(v: Any?) = (v as? Number)?.toInt() ?: v?.toString()?.toIntOrNull()
+            ?: error("$name: vocabulary index $v is not a number")
+        return when {
+            // mostly numeric keys: an inverted idx -> term map
+            voc is Map<*, *> && voc.keys.count { it.toString().matches(Regex("\\d+")) } > voc.size / 2 ->
+                voc.entries.associate { (k, v) -> v.toString() to column(k) }
+            voc is Map<*, *> -> voc.entries.associate { (k, v) -> k.toString() to column(v) }
+            voc is List<*> && voc.firstOrNull() is List<*> -> voc.associate { pair ->
+                val p = pair as? List<*> ?: error("$name: vocabulary entry $pair is not a [term, index] pair")
+                check(p.size >= 2) { "$name: vocabulary entry $p is not a [term, index] pair" }
+                p[0].toString() to column(p[1])
+            }
+            voc is List<*> && voc.firstOrNull() is String -> voc.withIndex().associate { (i, t) -> t.toString() to i }
+            else -> error("$name: vocabulary shape not recognized (${voc::class.simpleName})")
+        }
+    }
+}
+
+/**
+ * Converts the event recommender JSON asset into the binary layout read by EventModelFormat
+ * (keep the two in sync), so the first launch maps the model instead of parsing and caching
+ * the JSON. Rows and metadata are assembled as EventModelFormat.fromJson does.
+ */
+abstract class ConvertEventModelTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val jsonModel: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun convert() {
+        val out = outputDir.get().asFile
+        out.mkdirs()
+        val src = jsonModel.get().asFile
+
+        @Suppress("UNCHECKED_CAST")
+        val root = groovy.json.JsonSlurper().parse(src) as Map<String, Any?>
+        @Suppress("UNCHECKED_CAST")
+        fun obj(m: Map<*, *>, key: String) = m[key] as? Map<String, Any?> ?: error("${src.name}: missing $key")
+        val vec = obj(root, "vectorizer")
+        val vocab = obj(vec, "vocab").mapValues { (_, v) -> (v as Number).toInt() }
+        val nFeatures = (vocab.values.maxOrNull() ?: -1) + 1
+        val terms = arrayOfNulls<String>(nFeatures)
+        vocab.forEach { (term, idx) -> terms[idx] = term }
+
+        val ngrams = vec["ngram_range"] as? List<*>
+        val ngramMin = (ngrams?.getOrNull(0) as Number?)?.toInt() ?: 1
+        val ngramMax = (ngrams?.getOrNull(1) as Number?)?.toInt() ?: 1
+        val stopWords = vec["stop_words"] == "english"
+        val jIdf = obj(vec, "idf")
+        val idf = FloatArray(nFeatures) { t -> terms[t]?.let { (jIdf[it] as Number?)?.toFloat() } ?: 1f }
+
+        // only events that have both a vector and metadata are indexed, in id order
+        val vectors = obj(root, "event_vectors")
+        val events = obj(root, "events")
+        val order = vectors.keys.filter { it in events }.sorted()
+        val rowStart = IntArray(order.size + 1)
+        val rowTerms = ArrayList<Int>()
+        val rowWeights = ArrayList<Float>()
+        order.forEachIndexed { e, id ->
+            obj(vectors, id).mapNotNull { (t, w) -> vocab[t]?.let { it to (w as Number).toFloat() } }
+                .sortedBy { it.first }
+                .forEach { (t, w) -> rowTerms += t; rowWeights += w }
+            rowStart[e + 1] = rowTerms.size
+        }
+        val metas = order.map { id ->
+            val o = obj(events, id)
+            listOf(id) + listOf("name", "category", "image_url", "date").map { o[it]?.toString() ?: "" }
+        }
+
+        val starts = IntArray(nFeatures + 1)
+        for (i in 0 until nFeatures) starts[i + 1] = starts[i] + (terms[i]?.length ?: 0)
+        val poolLen = starts[nFeatures]
+        val nnz = rowTerms.size
+
+        val size = 4 * 9 + 4 * (nFeatures + 1) + 2 * poolLen + 4 * nFeatures + 4 * (order.size + 1) + 8 * nnz +
+                metas.sumOf { m -> m.sumOf { 4 + 2 * it.length } }
+        val b = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+        b.putInt(0x454C4556).putInt(2)                         // "ELEV", version 2
+        b.putInt(nFeatures).putInt(order.size).putInt(nnz).putInt(poolLen)
+        b.putInt(ngramMin).putInt(ngramMax).putInt(if (stopWords) 1 else 0)
+        starts.forEach { b.putInt(it) }
+        terms.forEach { t -> t?.forEach { b.putChar(it) } }
+        idf.forEach { b.putFloat(it) }
+        rowStart.forEach { b.putInt(it) }
+        rowTerms.forEach { b.putInt(it) }
+        rowWeights.forEach { b.putFloat(it) }
+        for (m in metas) for (s in m) {
+            b.putInt(s.length)
+            s.forEach { b.putChar(it) }
+        }
+
+        File(out, src.nameWithoutExtension + ".bin").writeBytes(b.array())
+    }
+}
+
 android {
     namespace = "com.example.eventlink"
     compileSdk = 36
@@ -42,6 +226,31 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+
+    // binary models are memory-mapped straight out of the APK, which needs them stored uncompressed
+    androidResources {
+        noCompress += "bin"
+    }
+
+    // unit tests run the model code on the JVM; android.util.Log and friends just return defaults there
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
+}
+
+val convertIntentModel = tasks.register<ConvertIntentModelTask>("convertIntentModel") {
+    jsonModel.set(layout.projectDirectory.file("src/main/assets/intent_model_android.json"))
+}
+
+val convertEventModel = tasks.register<ConvertEventModelTask>("convertEventModel") {
+    jsonModel.set(layout.projectDirectory.file("src/main/assets/weights_events.json"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(convertIntentModel, ConvertIntentModelTask::outputDir)
+        variant.sources.assets?.addGeneratedSourceDirectory(convertEventModel, ConvertEventModelTask::outputDir)
+    }
 }
 
 dependencies {
@@ -55,6 +264,7 @@ dependencies {
     implementation(libs.googleid)
 
     testImplementation(libs.junit)
+    testImplementation("org.json:json:20240303")   // android.jar only has stubs of org.json
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
@@ -0,0 +1,137 @@
+package com.example.eventlink;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide value built off the main thread, behind ClassifierHolder and RecommenderHolder.
+ * <p>
+ * Loads run one at a time on the holder's own daemon thread and concurrent callers share the one
+ * in flight. Once a value is published readers only do a volatile read; a reload swaps the new
+ * value in while the old one keeps serving.
+ */
+abstract class AsyncHolder<T> {
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final String tag;
+    private final AtomicReference<T> instance = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<T>> pending = new AtomicReference<>();
+    private final ExecutorService loader;
+    private volatile Context appContext;
+
+    AsyncHolder(String tag, String threadName) {
+        this.tag = tag;
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Builds a new value; runs on the loader thread. */
+    abstract T create(Context app) throws Exception;
+
+    /** Called on the loader thread once a load has published v (or kept a newer value), after ms. */
+    void loaded(T v, long ms) {
+    }
+
+    /**
+     * Publishes v, built by a load that started while old was current (null on the first load), and
+     * returns the value now current. By default a value published while we were loading (e.g. a
+     * refit) is newer and is kept.
+     */
+    T publish(T old, T v) {
+        return instance.compareAndSet(old, v) ? v : instance.get();
+    }
+
+    /** Completes with the current value; never blocks the caller. */
+    final CompletableFuture<T> getAsync(Context ctx) {
+        appContext = ctx.getApplicationContext();
+        T v = instance.get();
+        if (v != null) return CompletableFuture.completedFuture(v);
+        return load();
+    }
+
+    /** Delivers the value on the main thread once it is ready (null if loading failed). */
+    final void whenReady(Context ctx, Consumer<T> callback) {
+        getAsync(ctx).whenComplete((v, err) -> {
+            if (err != null) Log.e(tag, "Load failed", err);
+            MAIN.post(() -> callback.accept(err == null ? v : null));
+        });
+    }
+
+    /** The published value, or null while the first load is still running. */
+    final T peek() {
+        return instance.get();
+    }
+
+    /** Blocking access; prefer {@link #getAsync} or {@link #whenReady} on the main thread. */
+    final T get(Context ctx) throws Exception {
+        T v = instance.get();
+        if (v != null) return v;
+        try {
+            return getAsync(ctx).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Builds a fresh value in the background and swaps it in; completes with the value then current,
+     * or returns null before the first getAsync.
+     */
+    final CompletableFuture<T> reload() {
+        return appContext != null ? load() : null;
+    }
+
+    /** Publishes v if the current value is still expected; see {@link AtomicReference#compareAndSet}. */
+    final boolean compareAndSet(T expected, T v) {
+        return instance.compareAndSet(expected, v);
+    }
+
+    /** The loader thread, for work that must not overlap a load. */
+    final Executor executor() {
+        return loader;
+    }
+
+    private CompletableFuture<T> load() {
+        CompletableFuture<T> mine;
+        do {
+            CompletableFuture<T> inFlight = pending.get();
+            if (inFlight != null) return inFlight;
+            mine = new CompletableFuture<>();
+        } while (!pending.compareAndSet(null, mine));
+
+        CompletableFuture<T> result = mine;
+        Context ctx = appContext;
+        loader.execute(() -> {
+            long t0 = System.nanoTime();
+            T v = null;
+            Throwable err = null;
+            try {
+                T old = instance.get();
+                v = publish(old, create(ctx));
+                loaded(v, (System.nanoTime() - t0) / 1_000_000);
+            } catch (Throwable t) {
+                err = t;
+            }
+            // cleared before completing, so a reload() issued from a callback starts a fresh load
+            pending.compareAndSet(result, null);
+            if (err == null) result.complete(v);
+            else result.completeExceptionally(err);
+        });
+        return result;
+    }
+}
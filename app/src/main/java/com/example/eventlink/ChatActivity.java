@@ -10,7 +10,10 @@ import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
@@ -34,8 +37,13 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -52,6 +60,7 @@ import retrofit2.Response;
  */
 public class ChatActivity extends AppCompatActivity {
 
+    private static final String TAG = "ChatActivity";
     private static final String MODEL = "gemini-2.0-flash";
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 101;
 
@@ -61,12 +70,12 @@ public class ChatActivity extends AppCompatActivity {
     private ScrollView chatScroll;
 
     private Call<GeminiResponse> inFlight;
-    private IntentLocalClassifier classifier;
     private FusedLocationProviderClient fusedLocationClient;
 
     private boolean waitingForLocation = false;
     private String pendingUserText, pendingSystemPrompt, pendingApiKey;
     private BotService pendingApi;
+    private ChatPipeline.Turn pendingTurn;
 
     private Handler aiAlertHandler = new Handler(Looper.getMainLooper());
     private Runnable aiAlertRunnable;
@@ -76,28 +85,19 @@ public class ChatActivity extends AppCompatActivity {
     private final FirebaseFirestore db = FirebaseFirestore.getInstance();
     private String userEmail;
 
-    private enum LiteIntent {
-        EVENT_DATE, EVENT_TIME, EVENT_LOCATION, EVENT_DESC, EVENT_CATEGORY, NONE
-    }
+    private static final MessageRouter ROUTER = MessageRouter.chat();
 
-    private LiteIntent quickClassify(String msg) {
-        if (msg == null) return LiteIntent.NONE;
-        msg = msg.toLowerCase(Locale.ROOT);
-        if (msg.matches(".*\\b(what time|time|starts at|start at|begin|starting|clock|when does it start)\\b.*")) return LiteIntent.EVENT_TIME;
-        if (msg.matches(".*\\b(when|date|day|schedule|which day|which date)\\b.*")) return LiteIntent.EVENT_DATE;
-        if (msg.matches(".*\\b(where|venue|address|location|place|held|happen|happening)\\b.*")) return LiteIntent.EVENT_LOCATION;
-        if (msg.matches(".*\\b(about|describe|details|summary|information|info|tell me about)\\b.*")) return LiteIntent.EVENT_DESC;
-        if (msg.matches(".*\\b(category|type|domain|kind of event|what kind of)\\b.*")) return LiteIntent.EVENT_CATEGORY;
-        return LiteIntent.NONE;
-    }
+    private ChatPipeline pipeline;
+    private IntentEvaluator evaluator;   // shared; null until the classifier is loaded
+    private boolean classifierFailed;    // the load failed: classify everything as out_of_scope
 
-    private String extractEventNameFromMessage(String msg) {
-        if (msg == null) return null;
-        msg = msg.toLowerCase(Locale.ROOT);
-        msg = msg.replaceAll("\\b(when|what|which|time|date|day|schedule|is|for|the|event|show|tell|about|on|at|of|start|starts|will|happen|does|do|it|my|me|where|venue|address|location|place|held|category|type|domain|kind)\\b", " ");
-        msg = msg.replaceAll("\\s+", " ").trim();
-        return msg.isEmpty() ? null : msg;
-    }
+    // Speculative context: the draft is classified on a debounce and stable intents prefetched
+    private static final long TYPING_DEBOUNCE_MS = 350;
+    private static final double PREFETCH_CONFIDENT = 0.8;   // prefetch on first sight above this
+    private final Handler typingHandler = new Handler(Looper.getMainLooper());
+    private final Runnable speculate = this::speculateOnDraft;
+    private final ContextPrefetcher prefetcher = new ContextPrefetcher();
+    private String lastDraftKey;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -112,11 +112,15 @@ public class ChatActivity extends AppCompatActivity {
         userEmail = getIntent().getStringExtra("userEmail");
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
-        try {
-            classifier = new IntentLocalClassifier(this, "intent_model_android.json");
-        } catch (Exception e) {
-            appendLine("Bot init warning: classifier not loaded (" + e.getMessage() + ")");
-        }
+        // shared instance, loaded in the background at app start; rule-based paths serve until then
+        ClassifierHolder.whenEvaluatorReady(this, e -> {
+            if (e != null) evaluator = e;
+            else {
+                classifierFailed = true;
+                if (!isFinishing()) appendLine("Bot init warning: classifier not loaded");
+            }
+        });
+        pipeline = buildPipeline();
 
         sendBtn.setOnClickListener(v -> trySend());
         input.setOnEditorActionListener((v, actionId, event) -> {
@@ -125,6 +129,39 @@ public class ChatActivity extends AppCompatActivity {
             if (imeDone || enter) { trySend(); return true; }
             return false;
         });
+        input.addTextChangedListener(new TextWatcher() {
+            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            @Override public void afterTextChanged(Editable s) {
+                typingHandler.removeCallbacks(speculate);
+                typingHandler.postDelayed(speculate, TYPING_DEBOUNCE_MS);
+            }
+        });
+    }
+
+    /**
+     * Classifies the draft the way send would (router, then the evaluator's side-effect-free
+     * preview, so only sent messages reach its cache and stats) and prefetches the Gemini context once the intent is stable: the same key on two debounce
+     * ticks in a row, or a confident top intent.
+     */
+    private void speculateOnDraft() {
+        String text = input.getText().toString().trim();
+        String key = null;
+        try {
+            if (evaluator == null || text.length() < 4) return;
+            MessageRouter.Decision d = ROUTER.route(text);
+            if (d.route != MessageRouter.Route.NONE) return;   // the rules stage answers without context
+            IntentLocalClassifier.Prediction r = evaluator.preview(text);
+            if (r == null || TextUtils.isEmpty(r.top1) || "out_of_scope".equals(r.top1)) return;
+
+            Set<String> intents = contextIntents(r);
+            key = ContextPrefetcher.key(intents, d.eventName);
+            if (key.equals(lastDraftKey) || r.top1Prob >= PREFETCH_CONFIDENT) {
+                prefetcher.prefetch(key, done -> DbProvider.fetchContext(this, userEmail, intents, d.eventName, done));
+            }
+        } finally {
+            lastDraftKey = key;
+        }
     }
 
     private void trySend() {
@@ -132,165 +169,177 @@ public class ChatActivity extends AppCompatActivity {
         if (text.isEmpty()) return;
         appendLine("You: " + text);
         input.setText("");
+        typingHandler.removeCallbacks(speculate);
+        lastDraftKey = null;
         hideKeyboard(input);
 
         String apiKey = BuildConfig.GEMINI_API_KEY;
         if (TextUtils.isEmpty(apiKey)) { appendLine("Bot: API key missing."); return; }
 
-        // Handle user location first
-        String lower = text.toLowerCase(Locale.ROOT);
-        if (lower.contains("where am i") || lower.contains("my location") ||
-                lower.contains("current location") || lower.contains("my address") ||
-                lower.contains("where are we")) {
-            handleUserLocationRequest(apiKey, text);
-            return;
+        pipeline.run(text);
+    }
+
+    /** Stage order: cheapest first; see ChatPipeline.dumpStats() for what each one costs and answers. */
+    private ChatPipeline buildPipeline() {
+        ChatPipeline p = new ChatPipeline();
+        if (BuildConfig.DEBUG) p.add("debug", this::answerDebugCommand);
+        return p.add("rules", this::answerByRules)
+                .add("intent", this::classifyIntent)
+                .add("local", this::answerLocally)
+                .add("gemini", this::askGemini);
+    }
+
+    // Debug builds: "/stats" prints the pipeline stats
+    private boolean answerDebugCommand(ChatPipeline.Turn turn) {
+        if (!"/stats".equals(turn.text)) return false;
+        IntentLocalClassifier clf = ClassifierHolder.peek();
+        appendLine(ChatPipeline.dumpStats() + (clf == null ? "" : "\noff-topic gate: " + clf.gatedCount())
+                + "\n" + UserProfileStore.get(this).stats() + "\n" + ContextPrefetcher.stats());
+        return true;
+    }
+
+    // Rule-based routes, one pass over the message (user location first, see MessageRouter.Route)
+    private boolean answerByRules(ChatPipeline.Turn turn) {
+        MessageRouter.Decision decision = ROUTER.route(turn.text);
+        turn.decision = decision;
+        if (decision.route == MessageRouter.Route.USER_LOCATION) {
+            handleUserLocationRequest(turn, BuildConfig.GEMINI_API_KEY, turn.text);
+            return true;
         }
 
         // Event field Q&A
-        LiteIntent lite = quickClassify(text);
-        if (lite != LiteIntent.NONE) {
-            String eventQuery = extractEventNameFromMessage(text);
-            if (TextUtils.isEmpty(eventQuery)) { appendLine("🤖 Please specify the event name."); return; }
-            handleEventFieldQuery(lite, eventQuery);
-            return;
+        if (decision.route.isEventField()) {
+            if (TextUtils.isEmpty(decision.eventName)) { appendLine("🤖 Please specify the event name."); turn.replied(); return true; }
+            handleEventFieldQuery(turn, decision.route, decision.eventName);
+            return true;
         }
 
         // User info
-        if (isUserDetailsQuery(text)) { handleUserDetailsQuery(text); return; }
+        if (decision.route == MessageRouter.Route.USER_DETAILS) { handleUserDetailsQuery(turn); return true; }
 
         // Registered events
-        if (isRegisteredEventsQuery(text)) {
-            handleRegisteredEventsQuery();
-            return;
-        }
-
-        // Intent classification
-        String intentName = "out_of_scope";
-        if (classifier != null) {
-            IntentLocalClassifier.Prediction r = classifier.predict(text);
-
-            // ✅ Confidence filtering
-            if (r == null || TextUtils.isEmpty(r.top1) || r.top1Prob < 0.55) {
-                intentName = "out_of_scope";
-            } else {
-                intentName = r.top1;
-            }
-
-
-            lastIntent = intentName;
-            resetAIDelay();
+        if (decision.route == MessageRouter.Route.REGISTERED_EVENTS) {
+            handleRegisteredEventsQuery(turn);
+            return true;
         }
+        return false;
+    }
 
-
-        // ✅ Out of scope handling
-        if ("out_of_scope".equals(intentName)) {
-            appendLine("🤖 I’m not sure about that yet — I can help you with your events, registrations, or profile info.");
-            return;
+    // Intent classification (answers only while the model is still loading)
+    private boolean classifyIntent(ChatPipeline.Turn turn) {
+        if (evaluator == null && !classifierFailed) {
+            appendLine("🤖 Still warming up — meanwhile ask me about an event's date, time, location or details, your profile, or your registrations.");
+            return true;
         }
+        // ✅ Confidence filtering: below the threshold the evaluator answers out_of_scope
+        IntentLocalClassifier.Prediction r = evaluator == null ? null : evaluator.evaluate(turn.text);
+        turn.intent = (r == null || TextUtils.isEmpty(r.top1)) ? "out_of_scope" : r.top1;
+        if (r == null) turn.contextIntents.add(turn.intent);
+        else turn.contextIntents.addAll(contextIntents(r));
+
+        lastIntent = turn.intent;
+        resetAIDelay();
+        return false;
+    }
 
-        // Normal AI flow
-        fetchContextThenAskGemini(apiKey, intentName, text);
+    /**
+     * Intents to fetch context for: the top one. Multi-field questions ("when and where is X") are
+     * answered by MessageRouter; on what is left the runner-up is never a second in-scope intent.
+     */
+    private static Set<String> contextIntents(IntentLocalClassifier.Prediction r) {
+        return Collections.singleton(TextUtils.isEmpty(r.top1) ? "out_of_scope" : r.top1);
     }
 
+    // ✅ Out of scope handling
+    private boolean answerLocally(ChatPipeline.Turn turn) {
+        if (!"out_of_scope".equals(turn.intent)) return false;
+        appendLine("🤖 I’m not sure about that yet — I can help you with your events, registrations, or profile info.");
+        return true;
+    }
 
-    private boolean isUserDetailsQuery(String text) {
-        if (text == null) return false;
-        String s = text.toLowerCase(Locale.ROOT);
-        return s.contains("my name") || s.contains("who am i") || s.contains("my email") ||
-                s.contains("what's my name") || s.contains("my info") ||
-                s.contains("my profile") || s.contains("my account") ||
-                s.contains("my details");
+    // Normal AI flow
+    private boolean askGemini(ChatPipeline.Turn turn) {
+        fetchContextThenAskGemini(turn, BuildConfig.GEMINI_API_KEY, turn.intent, turn.text);
+        return true;
     }
 
     // ✅ NEW: handle registered events list
-    private void handleRegisteredEventsQuery() {
+    private void handleRegisteredEventsQuery(ChatPipeline.Turn turn) {
         setSending(true);
         String uid = FirebaseAuth.getInstance().getCurrentUser() != null
                 ? FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
         if (uid == null) {
             appendLine("Bot: You are not logged in.");
             setSending(false);
+            turn.replied();
             return;
         }
 
-        db.collection("users").document(uid).get()
-                .addOnSuccessListener(doc -> {
-                    setSending(false);
-                    if (!doc.exists()) {
-                        appendLine("Bot: I couldn’t find your profile.");
-                        return;
-                    }
-                    List<String> regs = (List<String>) doc.get("registeredEvents");
-                    if (regs == null || regs.isEmpty()) {
-                        appendLine("📝 You haven’t registered for any events yet.");
-                    } else {
-                        StringBuilder sb = new StringBuilder("📅 You’re registered for:\n");
-                        for (String ev : regs) sb.append("• ").append(ev).append("\n");
-                        appendLine(sb.toString());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    appendLine("❌ Error fetching registered events: " + e.getMessage());
-                    setSending(false);
-                });
+        UserProfileStore.get(this).whenLoaded(uid, profile -> {
+            setSending(false);
+            turn.replied();   // every branch below shows an answer
+            if (profile == null) { appendLine("❌ Error fetching registered events: profile unavailable"); return; }
+            if (!profile.exists) {
+                appendLine("Bot: I couldn’t find your profile.");
+                return;
+            }
+            List<String> regs = profile.registeredEvents;
+            if (regs.isEmpty()) {
+                appendLine("📝 You haven’t registered for any events yet.");
+            } else {
+                StringBuilder sb = new StringBuilder("📅 You’re registered for:\n");
+                for (String ev : regs) sb.append("• ").append(ev).append("\n");
+                appendLine(sb.toString());
+            }
+        });
     }
 
-    private void handleUserDetailsQuery(String userText) {
+    private void handleUserDetailsQuery(ChatPipeline.Turn turn) {
         setSending(true);
         String uid = FirebaseAuth.getInstance().getCurrentUser() != null
                 ? FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
-        if (uid == null) { appendLine("Bot: You are not logged in."); setSending(false); return; }
-
-        db.collection("users").document(uid).get()
-                .addOnSuccessListener(userDoc -> {
-                    setSending(false);
-                    if (!userDoc.exists()) { appendLine("Bot: I couldn’t find your profile."); return; }
+        if (uid == null) { appendLine("Bot: You are not logged in."); setSending(false); turn.replied(); return; }
 
-                    String name = userDoc.getString("name");
-                    String email = userDoc.getString("email");
-                    String loc = userDoc.getString("location");
-
-                    StringBuilder sb = new StringBuilder("👤 Your account details:\n");
-                    if (!TextUtils.isEmpty(name)) sb.append("• Name: ").append(name).append("\n");
-                    if (!TextUtils.isEmpty(email)) sb.append("• Email: ").append(email).append("\n");
-                    if (!TextUtils.isEmpty(loc)) sb.append("• Saved Location: ").append(loc);
-                    appendLine(sb.toString());
-                })
-                .addOnFailureListener(e -> { appendLine("❌ Error fetching profile: " + e.getMessage()); setSending(false); });
-    }
-
-    private boolean isRegisteredEventsQuery(String text) {
-        if (text == null) return false;
-        String s = text.toLowerCase(Locale.ROOT);
-        return s.contains("registered events") || s.contains("my registrations") ||
-                s.contains("what did i register") || s.contains("my events") ||
-                s.contains("what i've registered");
+        UserProfileStore.get(this).whenLoaded(uid, profile -> {
+            setSending(false);
+            turn.replied();   // every branch below shows an answer
+            if (profile == null) { appendLine("❌ Error fetching profile: profile unavailable"); return; }
+            if (!profile.exists) { appendLine("Bot: I couldn’t find your profile."); return; }
+
+            StringBuilder sb = new StringBuilder("👤 Your account details:\n");
+            if (!TextUtils.isEmpty(profile.name)) sb.append("• Name: ").append(profile.name).append("\n");
+            if (!TextUtils.isEmpty(profile.email)) sb.append("• Email: ").append(profile.email).append("\n");
+            if (!TextUtils.isEmpty(profile.location)) sb.append("• Saved Location: ").append(profile.location);
+            appendLine(sb.toString());
+        });
     }
 
-    private void handleUserLocationRequest(String apiKey, String userText) {
+    private void handleUserLocationRequest(ChatPipeline.Turn turn, String apiKey, String userText) {
         String uid = FirebaseAuth.getInstance().getCurrentUser() != null
                 ? FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
-        if (uid == null) { appendLine("Bot: You are not logged in."); return; }
-
-        db.collection("users").document(uid).get()
-                .addOnSuccessListener(doc -> {
-                    String savedLoc = doc.getString("location");
-                    if (!TextUtils.isEmpty(savedLoc)) appendLine("🏠 Saved Location: " + savedLoc);
-                    appendLine("📍 Fetching real-time location...");
-                    BotService api = RetrofitProvider.getApi();
-                    setSending(true);
-                    fetchUserAddressAndSend(userText, "You are EventLink assistant.", api, apiKey);
-                })
-                .addOnFailureListener(e -> {
-                    appendLine("⚠️ Couldn't get saved location. Using real-time...");
-                    BotService api = RetrofitProvider.getApi();
-                    fetchUserAddressAndSend(userText, "You are EventLink assistant.", api, apiKey);
-                });
+        if (uid == null) { appendLine("Bot: You are not logged in."); turn.replied(); return; }
+
+        UserProfileStore.get(this).whenLoaded(uid, profile -> {
+            if (profile == null) {
+                appendLine("⚠️ Couldn't get saved location. Using real-time...");
+            } else {
+                if (!TextUtils.isEmpty(profile.location)) {
+                    appendLine("🏠 Saved Location: " + profile.location);
+                    turn.replied();
+                }
+                appendLine("📍 Fetching real-time location...");
+            }
+            BotService api = RetrofitProvider.getApi();
+            setSending(true);
+            fetchUserAddressAndSend(turn, userText, "You are EventLink assistant.", api, apiKey);
+        });
     }
 
-    private void fetchContextThenAskGemini(String apiKey, String intentName, String userText) {
+    private void fetchContextThenAskGemini(ChatPipeline.Turn turn, String apiKey, String intentName, String userText) {
         setSending(true);
-        DbProvider.fetchContextForIntent(this, userEmail, intentName, ctxMap -> {
+        // one round trip for every intent in play, event fields for the event the message names
+        String eventQuery = turn.decision == null ? null : turn.decision.eventName;
+        Consumer<Map<String, String>> ask = ctxMap -> {
             String systemPrompt = DbProvider.buildPrompt(intentName, ctxMap);
             BotService api = RetrofitProvider.getApi();
             GeminiRequest body = GeminiRequest.of(userText, systemPrompt);
@@ -299,65 +348,75 @@ public class ChatActivity extends AppCompatActivity {
             inFlight.enqueue(new Callback<GeminiResponse>() {
                 @Override public void onResponse(@NonNull Call<GeminiResponse> call, @NonNull Response<GeminiResponse> res) {
                     setSending(false);
+                    turn.replied();
                     if (!res.isSuccessful()) { appendLine("Bot (HTTP " + res.code() + "): " + res.message()); return; }
                     String out = res.body() == null ? null : res.body().firstText();
                     appendLine("Bot: " + (TextUtils.isEmpty(out) ? "(no response)" : out));
                 }
                 @Override public void onFailure(@NonNull Call<GeminiResponse> call, @NonNull Throwable t) {
                     setSending(false);
+                    turn.replied();
                     appendLine(call.isCanceled() ? "Bot: request cancelled" : "Bot (network): " + t.getMessage());
                 }
             });
-        });
+        };
+        // prefetched while typing? then the Firestore hop is already done (or in flight)
+        if (!prefetcher.take(ContextPrefetcher.key(turn.contextIntents, eventQuery), ask)) {
+            DbProvider.fetchContext(this, userEmail, turn.contextIntents, eventQuery, ask);
+        }
     }
 
-    private void handleEventFieldQuery(LiteIntent lite, String eventQuery) {
+    // Local mirror first (milliseconds, works offline); Firestore only if the mirror has nothing yet
+    private void handleEventFieldQuery(ChatPipeline.Turn turn, MessageRouter.Route lite, String eventQuery) {
         setSending(true);
+        EventStore.get(this).query(
+                store -> store.count() == 0 ? null : Optional.ofNullable(store.bestNameMatch(eventQuery)),
+                match -> {
+                    if (match == null) { fetchEventFromFirestore(turn, lite, eventQuery); return; }
+                    if (match.isPresent()) answerEventField(lite, match.get());
+                    else appendLine("⚠️ I couldn’t find that event.");
+                    setSending(false);
+                    turn.replied();
+                });
+    }
+
+    private void fetchEventFromFirestore(ChatPipeline.Turn turn, MessageRouter.Route lite, String eventQuery) {
         db.collection("createdEvents").whereEqualTo("name", eventQuery).limit(1)
                 .get()
                 .addOnSuccessListener(snap -> {
-                    if (!snap.isEmpty()) { answerEventField(lite, snap.getDocuments().get(0)); setSending(false); }
-                    else scanAndPickBest(eventQuery, lite);
+                    if (!snap.isEmpty()) { answerEventField(lite, EventStore.Event.of(snap.getDocuments().get(0))); setSending(false); turn.replied(); }
+                    else searchFirestoreNames(turn, eventQuery, lite);
                 })
-                .addOnFailureListener(e -> { appendLine("❌ Error fetching event: " + e.getMessage()); setSending(false); });
+                .addOnFailureListener(e -> { appendLine("❌ Error fetching event: " + e.getMessage()); setSending(false); turn.replied(); });
     }
 
-    private void scanAndPickBest(String eventQuery, LiteIntent lite) {
+    // Until the first sync lands: fuzzy-match over a page of names with a throwaway index
+    private void searchFirestoreNames(ChatPipeline.Turn turn, String eventQuery, MessageRouter.Route lite) {
         db.collection("createdEvents").orderBy("name", Query.Direction.ASCENDING)
                 .limit(100).get()
                 .addOnSuccessListener(snap -> {
-                    if (snap.isEmpty()) { appendLine("⚠️ I couldn’t find that event."); setSending(false); return; }
-                    String q = eventQuery.toLowerCase(Locale.ROOT);
-                    DocumentSnapshot best = null; int bestScore = -1;
-                    for (DocumentSnapshot d : snap.getDocuments()) {
-                        String name = d.getString("name"); if (name == null) continue;
-                        int score = similarityScore(q, name.toLowerCase(Locale.ROOT));
-                        if (score > bestScore) { bestScore = score; best = d; }
+                    EventNameIndex index = new EventNameIndex();
+                    for (DocumentSnapshot d : snap.getDocuments()) index.put(d.getId(), d.getString("name"));
+                    List<EventNameIndex.Match> best = index.search(eventQuery, 1);
+                    DocumentSnapshot hit = null;
+                    if (!best.isEmpty()) {
+                        for (DocumentSnapshot d : snap.getDocuments()) if (d.getId().equals(best.get(0).id)) hit = d;
                     }
-                    if (best != null) answerEventField(lite, best);
+                    if (hit != null) answerEventField(lite, EventStore.Event.of(hit));
                     else appendLine("⚠️ I couldn’t find that event.");
                     setSending(false);
+                    turn.replied();
                 })
-                .addOnFailureListener(e -> { appendLine("❌ Error fetching event: " + e.getMessage()); setSending(false); });
-    }
-
-    private int similarityScore(String q, String name) {
-        if (name.equals(q)) return 100;
-        if (name.startsWith(q)) return 80;
-        if (name.contains(q)) return 60;
-        String[] qa = q.split("\\s+"), na = name.split("\\s+");
-        int overlap = 0;
-        for (String x : qa) for (String y : na) if (x.equals(y)) overlap++;
-        return overlap * 10;
+                .addOnFailureListener(e -> { appendLine("❌ Error fetching event: " + e.getMessage()); setSending(false); turn.replied(); });
     }
 
-    private void answerEventField(LiteIntent lite, DocumentSnapshot doc) {
-        String name = doc.getString("name");
-        String date = doc.getString("date");
-        String time = doc.getString("time");
-        String address = doc.getString("address");
-        String desc = doc.getString("description");
-        String category = doc.getString("domain");
+    private void answerEventField(MessageRouter.Route lite, EventStore.Event ev) {
+        String name = ev.name;
+        String date = ev.date;
+        String time = ev.time;
+        String address = ev.address;
+        String desc = ev.description;
+        String category = ev.domain;
 
         switch (lite) {
             case EVENT_DATE:
@@ -374,17 +433,18 @@ public class ChatActivity extends AppCompatActivity {
     }
 
     @SuppressLint("MissingPermission")
-    private void fetchUserAddressAndSend(String userText, String systemPrompt, BotService api, String apiKey) {
+    private void fetchUserAddressAndSend(ChatPipeline.Turn turn, String userText, String systemPrompt, BotService api, String apiKey) {
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
                 != PackageManager.PERMISSION_GRANTED &&
                 ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
                         != PackageManager.PERMISSION_GRANTED) {
             waitingForLocation = true;
             pendingUserText = userText; pendingSystemPrompt = systemPrompt;
-            pendingApi = api; pendingApiKey = apiKey;
+            pendingApi = api; pendingApiKey = apiKey; pendingTurn = turn;
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.ACCESS_FINE_LOCATION}, LOCATION_PERMISSION_REQUEST_CODE);
             appendLine("Bot: Please grant location permission.");
             setSending(false);
+            turn.replied();
             return;
         }
 
@@ -396,10 +456,11 @@ public class ChatActivity extends AppCompatActivity {
             @Override public void onLocationResult(@NonNull com.google.android.gms.location.LocationResult locationResult) {
                 fusedLocationClient.removeLocationUpdates(this);
                 Location loc = locationResult.getLastLocation();
-                if (loc == null) { appendLine("Bot: Unable to fetch location."); setSending(false); return; }
+                if (loc == null) { appendLine("Bot: Unable to fetch location."); setSending(false); turn.replied(); return; }
                 String address = getAddressFromLocation(loc);
                 appendLine("📍 Real-time Location: " + address);
                 setSending(false);
+                turn.replied();
             }
         }, getMainLooper());
     }
@@ -449,8 +510,10 @@ public class ChatActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(reqCode, perms, results);
         if (reqCode == LOCATION_PERMISSION_REQUEST_CODE && waitingForLocation) {
             waitingForLocation = false;
+            ChatPipeline.Turn turn = pendingTurn;
+            pendingTurn = null;
             if (results.length > 0 && results[0] == PackageManager.PERMISSION_GRANTED)
-                fetchUserAddressAndSend(pendingUserText, pendingSystemPrompt, pendingApi, pendingApiKey);
+                fetchUserAddressAndSend(turn, pendingUserText, pendingSystemPrompt, pendingApi, pendingApiKey);
             else { appendLine("Bot: Location permission denied."); setSending(false); }
         }
     }
@@ -471,6 +534,10 @@ public class ChatActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        typingHandler.removeCallbacks(speculate);
+        prefetcher.clear();
+        ChatPipeline.logStats();
+        Log.i(TAG, ContextPrefetcher.stats());
         if (inFlight != null && !inFlight.isCanceled()) inFlight.cancel();
         aiAlertHandler.removeCallbacksAndMessages(null);
         if (lastIntent != null) {
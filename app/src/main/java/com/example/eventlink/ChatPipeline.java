@@ -0,0 +1,201 @@
+package com.example.eventlink;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ordered chain of chat routing stages. Each message goes through the stages until one answers.
+ * Per stage we count calls and answers and keep latency histograms, so the order can be tuned
+ * from data (cheapest stage that answers first).
+ * <p>
+ * Stats are process-wide and keyed by stage name, so they survive the chat screen being
+ * recreated; {@link #dumpStats()} renders them for a debug screen or the log.
+ */
+final class ChatPipeline {
+
+    private static final String TAG = "ChatPipeline";
+
+    /** Handles a message or passes it on; returns true once it has answered. */
+    interface Stage {
+        boolean handle(Turn turn);
+    }
+
+    /** One message on its way through the stages; stages leave results here for later ones. */
+    static final class Turn {
+        final String text;
+        final long startNanos = System.nanoTime();
+        MessageRouter.Decision decision;   // set by the rules stage
+        String intent;                     // set by the classifier stage
+        final Set<String> contextIntents = new LinkedHashSet<>();   // intents to fetch context for
+        private StageStats current;
+        private boolean replied;           // main thread only
+
+        Turn(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Called when an answer is shown, possibly later from a callback; records the time since
+         * the message was sent against the stage that took it. Only the first answer counts.
+         */
+        void replied() {
+            StageStats s = current;
+            if (s == null || replied) return;
+            replied = true;
+            s.reply.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static final Map<String, StageStats> STATS = new LinkedHashMap<>();
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<StageStats> stats = new ArrayList<>();
+
+    /** Appends a stage; stages run in the order they are added. */
+    ChatPipeline add(String name, Stage stage) {
+        stages.add(stage);
+        stats.add(statsFor(name));
+        return this;
+    }
+
+    /** Runs text through the stages until one answers. */
+    Turn run(String text) {
+        Turn turn = new Turn(text);
+        for (int i = 0; i < stages.size(); i++) {
+            StageStats s = stats.get(i);
+            turn.current = s;
+            long t0 = System.nanoTime();
+            boolean answered = false;
+            try {
+                answered = stages.get(i).handle(turn);
+            } finally {
+                s.record(System.nanoTime() - t0, answered);
+            }
+            if (answered) return turn;
+        }
+        turn.current = null;
+        return turn;
+    }
+
+    private static StageStats statsFor(String name) {
+        synchronized (STATS) {
+            StageStats s = STATS.get(name);
+            if (s == null) STATS.put(name, s = new StageStats(name));
+            return s;
+        }
+    }
+
+    /** One line per stage, in first-registered order. */
+    static String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (STATS) {
+            for (StageStats s : STATS.values()) {
+                if (sb.length() > 0) sb.append('\n');
+                s.appendTo(sb);
+            }
+        }
+        return sb.toString();
+    }
+
+    static void logStats() {
+        for (String line : dumpStats().split("\n")) Log.i(TAG, line);
+    }
+
+    static void resetStats() {
+        synchronized (STATS) {
+            for (StageStats s : STATS.values()) s.reset();
+        }
+    }
+
+    private static final class StageStats {
+        final String name;
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong answers = new AtomicLong();
+        final Histogram handle = new Histogram();   // time inside handle()
+        final Histogram reply = new Histogram();    // send -> answer shown, for stages that report it
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean answered) {
+            calls.incrementAndGet();
+            if (answered) answers.incrementAndGet();
+            handle.record(nanos);
+        }
+
+        void reset() {
+            calls.set(0);
+            answers.set(0);
+            handle.reset();
+            reply.reset();
+        }
+
+        void appendTo(StringBuilder sb) {
+            sb.append(name).append(": calls=").append(calls.get()).append(" answered=").append(answers.get());
+            sb.append(" | handle ");
+            handle.appendTo(sb);
+            if (reply.count() > 0) {
+                sb.append(" | reply ");
+                reply.appendTo(sb);
+            }
+        }
+    }
+
+    /** Power-of-two microsecond buckets: bucket k counts latencies below 2^k us (the last one is open). */
+    static final class Histogram {
+        private static final int BUCKETS = 28;    // up to ~2 minutes
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            int k = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            counts.incrementAndGet(k);
+        }
+
+        long count() {
+            long n = 0;
+            for (int k = 0; k < BUCKETS; k++) n += counts.get(k);
+            return n;
+        }
+
+        void reset() {
+            for (int k = 0; k < BUCKETS; k++) counts.set(k, 0);
+        }
+
+        /** Upper bound, in microseconds, of the bucket holding quantile q. */
+        long quantileMicros(double q) {
+            long total = count();
+            if (total == 0) return 0;
+            long need = Math.max(1, (long) Math.ceil(q * total)), seen = 0;
+            for (int k = 0; k < BUCKETS; k++) {
+                seen += counts.get(k);
+                if (seen >= need) return 1L << k;
+            }
+            return 1L << (BUCKETS - 1);
+        }
+
+        void appendTo(StringBuilder sb) {
+            sb.append("n=").append(count())
+                    .append(" p50<").append(format(quantileMicros(0.50)))
+                    .append(" p90<").append(format(quantileMicros(0.90)))
+                    .append(" p99<").append(format(quantileMicros(0.99)))
+                    .append(" max<").append(format(quantileMicros(1.0)));
+        }
+
+        private static String format(long micros) {
+            if (micros < 1000) return micros + "us";
+            if (micros < 1_000_000) return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+            return String.format(Locale.ROOT, "%.1fs", micros / 1_000_000.0);
+        }
+    }
+}
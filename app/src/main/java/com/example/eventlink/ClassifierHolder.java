@@ -0,0 +1,104 @@
+package com.example.eventlink;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide intent classifier, loaded once on a background executor (started from
+ * {@link EventLinkApp}), and the one IntentEvaluator (with its prediction cache) built on it.
+ * <p>
+ * The int8 model is served when it agrees with the full model on the held-out utterances,
+ * otherwise the full model is kept. Until loading finishes {@link #peek()} returns null and
+ * callers use their rule-based paths.
+ */
+public final class ClassifierHolder {
+
+    private static final String TAG = "ClassifierHolder";
+
+    static final String MODEL_ASSET = "intent_model_android.json";
+    static final String PARITY_ASSET = "intent_parity_utterances.txt";
+    private static final double MIN_TOP1_AGREEMENT = 0.99;
+    private static final double MAX_PROB_DRIFT = 0.02;
+    static final double CONFIDENCE_THRESHOLD = 0.55;   // below it the evaluator answers out_of_scope
+
+    private static final AsyncHolder<IntentLocalClassifier> HOLDER =
+            new AsyncHolder<IntentLocalClassifier>(TAG, "classifier-loader") {
+                @Override
+                IntentLocalClassifier create(Context app) throws Exception {
+                    return pickServingModel(app, new IntentLocalClassifier(app, MODEL_ASSET));
+                }
+
+                @Override
+                void loaded(IntentLocalClassifier c, long ms) {
+                    loadMillis = ms;
+                    Log.i(TAG, "Classifier ready: quantized=" + c.isQuantized() + ", bytes=" + c.footprintBytes()
+                            + ", ms=" + ms);
+                }
+            };
+
+    private static volatile long loadMillis = -1;
+    private static IntentEvaluator evaluator;   // guarded by ClassifierHolder.class
+
+    private ClassifierHolder() {
+        // Private constructor to prevent instantiation
+    }
+
+    /** Starts loading in the background if nothing is loaded or loading yet. */
+    public static void warmUp(Context ctx) {
+        getAsync(ctx);
+    }
+
+    /** Completes with the shared classifier; never blocks the caller. */
+    public static CompletableFuture<IntentLocalClassifier> getAsync(Context ctx) {
+        return HOLDER.getAsync(ctx);
+    }
+
+    /** Delivers the classifier on the main thread once it is ready (null if loading failed). */
+    public static void whenReady(Context ctx, Consumer<IntentLocalClassifier> callback) {
+        HOLDER.whenReady(ctx, callback);
+    }
+
+    /** Delivers the shared evaluator on the main thread once the classifier is ready (null if loading failed). */
+    public static void whenEvaluatorReady(Context ctx, Consumer<IntentEvaluator> callback) {
+        Context app = ctx.getApplicationContext();
+        HOLDER.whenReady(app, c -> callback.accept(c == null ? null : evaluator(c)));
+    }
+
+    private static synchronized IntentEvaluator evaluator(IntentLocalClassifier c) {
+        if (evaluator == null) evaluator = new IntentEvaluator(c, CONFIDENCE_THRESHOLD);
+        return evaluator;
+    }
+
+    /** The loaded classifier, or null while it is still loading. */
+    public static IntentLocalClassifier peek() {
+        return HOLDER.peek();
+    }
+
+    /** Blocking access for background callers; prefer {@link #peek} or {@link #whenReady} on the main thread. */
+    public static IntentLocalClassifier get(Context ctx) throws Exception {
+        return HOLDER.get(ctx);
+    }
+
+    /** Wall time of the last completed load (including the parity check), or -1. */
+    public static long loadMillis() {
+        return loadMillis;
+    }
+
+    /** The int8 copy of full if it passes the parity check, else full. */
+    private static IntentLocalClassifier pickServingModel(Context ctx, IntentLocalClassifier full) {
+        try {
+            List<String> heldOut = IntentLocalClassifier.readUtterances(ctx, PARITY_ASSET);
+            IntentLocalClassifier q = full.quantized();
+            IntentLocalClassifier.ParityReport report = IntentLocalClassifier.compare(full, q, heldOut);
+            Log.i(TAG, "int8 parity: " + report);
+            if (report.top1Agreement() >= MIN_TOP1_AGREEMENT && report.maxProbDrift <= MAX_PROB_DRIFT) return q;
+        } catch (Exception e) {
+            Log.w(TAG, "Parity check skipped (" + e.getMessage() + "), serving the full model");
+        }
+        return full;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.eventlink;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Short-lived cache of chat context fetched while the user is still typing.
+ * <p>
+ * The chat screen calls {@link #prefetch} once its debounced classification of the draft is
+ * stable, and {@link #take} on send; a hit skips the Firestore hop (or joins the fetch still in
+ * flight). Entries live {@link #TTL_MS} after their data arrives. Counters are process-wide, like
+ * ChatPipeline's stage stats: a prefetch is wasted when it is dropped unused.
+ * <p>
+ * Main thread only.
+ */
+final class ContextPrefetcher {
+
+    static final long TTL_MS = 30_000;
+    private static final int MAX_ENTRIES = 4;
+
+    /** Starts a context fetch and reports its fields once. */
+    interface Fetch {
+        void run(Consumer<Map<String, String>> done);
+    }
+
+    private static final AtomicLong ISSUED = new AtomicLong();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong WASTED = new AtomicLong();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();   // oldest first
+
+    private static final class Entry {
+        Map<String, String> context;         // null while the fetch is in flight
+        long readyAt;
+        List<Consumer<Map<String, String>>> waiting = new ArrayList<>();
+    }
+
+    /** Cache key: the intents (order-free) plus the event name they are about. */
+    static String key(Collection<String> intents, String eventQuery) {
+        return new TreeSet<>(intents) + "|" + (eventQuery == null ? "" : eventQuery.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /** Fetches context for key unless a fresh or in-flight entry already covers it. */
+    void prefetch(String key, Fetch fetch) {
+        expire();
+        if (entries.containsKey(key)) return;
+        if (entries.size() >= MAX_ENTRIES) drop(entries.keySet().iterator().next());
+
+        Entry e = new Entry();
+        entries.put(key, e);
+        ISSUED.incrementAndGet();
+        fetch.run(ctx -> {
+            e.context = ctx;
+            e.readyAt = SystemClock.elapsedRealtime();
+            List<Consumer<Map<String, String>>> w = e.waiting;
+            e.waiting = null;
+            for (Consumer<Map<String, String>> c : w) c.accept(ctx);
+        });
+    }
+
+    /**
+     * Hands the prefetched context for key to callback (now, or when the fetch in flight lands)
+     * and returns true; returns false on a miss, leaving the fetch to the caller.
+     */
+    boolean take(String key, Consumer<Map<String, String>> callback) {
+        expire();
+        Entry e = entries.remove(key);
+        if (e == null) {
+            MISSES.incrementAndGet();
+            return false;
+        }
+        HITS.incrementAndGet();
+        if (e.context != null) callback.accept(e.context);
+        else e.waiting.add(callback);
+        return true;
+    }
+
+    /** Drops every entry; unused ones count as wasted. */
+    void clear() {
+        for (String k : new ArrayList<>(entries.keySet())) drop(k);
+    }
+
+    private void expire() {
+        long now = SystemClock.elapsedRealtime();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (e.context != null && now - e.readyAt > TTL_MS) {
+                it.remove();
+                WASTED.incrementAndGet();
+            }
+        }
+    }
+
+    private void drop(String key) {
+        if (entries.remove(key) != null) WASTED.incrementAndGet();
+    }
+
+    static String stats() {
+        long hits = HITS.get(), misses = MISSES.get();
+        return String.format(Locale.ROOT, "prefetch: issued=%d hits=%d misses=%d wasted=%d hitRate=%.0f%%",
+                ISSUED.get(), hits, misses, WASTED.get(), hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses));
+    }
+}
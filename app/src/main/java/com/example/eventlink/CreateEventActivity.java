@@ -528,6 +528,11 @@ public class CreateEventActivity extends FragmentActivity implements OnMapReadyC
                 .addOnSuccessListener(a -> {
                     // schedule reminders after saving
                     scheduleSmartReminder(name, date, time); // ⏰ uses date + time
+                    // make the new event recommendable right away, without a model reload
+                    RecommenderHolder.getAsync(this).whenComplete((r, err) -> {
+                        if (err != null) Log.e(TAG, "Recommender unavailable, event " + eventId + " not indexed", err);
+                        else r.addOrUpdateEvent(eventId, name, desc, domain, date, imageUrl);
+                    });
                     Toast.makeText(this, "✅ Event Created", Toast.LENGTH_LONG).show();
                     finish();
                 })
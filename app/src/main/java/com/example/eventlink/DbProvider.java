@@ -5,144 +5,175 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
  * DbProvider
  * -----------------------------------------------------
  * Provides contextual data from Firestore for intents:
- *  - user_name, user_email, user_interests
- *  - registered_events
- *  - event_location, event_date, event_time, event_about, event_category
+ *  - user_name, user_email, user_location, user_interests, registered_events (profile fields)
+ *  - event_name, event_description, event_location, event_category, event_date_time,
+ *    event_date, event_time (fields of the named event)
+ * <p>
+ * Lookups are by key: user fields come from users/{uid} of the signed-in user (through
+ * UserProfileStore), event fields from the event the question names, resolved in the local
+ * mirror (EventStore). A set of intents is answered with one callback carrying the union.
  */
 public class DbProvider {
 
+    private static final String TAG = "DbProvider";
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
 
+    // general_greeting and out_of_scope need no context. event_date_time is IntentEvaluator's
+    // date/time rule; the model has no class for interests or registrations, see userContext
+    private static final Set<String> USER_INTENTS = new HashSet<>(Arrays.asList(
+            "user_name", "user_email", "user_location", "user_interests", "registered_events"));
+    private static final Set<String> EVENT_INTENTS = new HashSet<>(Arrays.asList(
+            "event_name", "event_description", "event_location", "event_category",
+            "event_date_time", "event_date", "event_time"));
+
+    /** Single-intent form of {@link #fetchContext}, without a named event. */
     public static void fetchContextForIntent(Context ctx, String userEmail, String intentName, @NonNull Consumer<Map<String, String>> callback) {
-        Map<String, String> result = new HashMap<>();
+        fetchContext(ctx, userEmail, intentName == null ? Collections.emptySet() : Collections.singleton(intentName), null, callback);
+    }
 
-        if (intentName == null) {
-            callback.accept(result);
-            return;
+    /**
+     * Context for all of intents in one pass: the profile and the event lookups run side by side
+     * and callback gets the union of their fields once, on the main thread.
+     *
+     * @param eventQuery event name as the user wrote it (e.g. MessageRouter's eventName); event
+     *                   intents without one get no event fields
+     */
+    public static void fetchContext(Context ctx, String userEmail, Collection<String> intents, String eventQuery,
+                                    @NonNull Consumer<Map<String, String>> callback) {
+        Set<String> user = new HashSet<>(), event = new HashSet<>();
+        for (String intent : intents) {
+            if (intent == null) continue;
+            String i = intent.toLowerCase(Locale.ROOT);
+            if (USER_INTENTS.contains(i)) user.add(i);
+            else if (EVENT_INTENTS.contains(i)) event.add(i);
         }
 
-        switch (intentName.toLowerCase()) {
-            case "user_name":
-            case "user_email":
-            case "user_interests":
-            case "registered_events":
-                fetchUserContext(userEmail, intentName, callback);
-                break;
+        Join join = new Join((user.isEmpty() ? 0 : 1) + (event.isEmpty() ? 0 : 1), callback);
+        if (!user.isEmpty()) fetchUserContext(ctx, userEmail, user, join);
+        if (!event.isEmpty()) fetchEventContext(ctx, eventQuery, event, join);
+    }
 
-            case "event_location":
-            case "event_date":
-            case "event_time":
-            case "event_details":
-            case "event_about":
-            case "event_category":
-                fetchEventContext(intentName, callback);
-                break;
+    private static void fetchUserContext(Context ctx, String email, Set<String> intents, Join join) {
+        FirebaseUser me = FirebaseAuth.getInstance().getCurrentUser();
+        if (me == null) {
+            join.done(Collections.emptyMap());
+            return;
+        }
+        UserProfileStore.get(ctx).whenLoaded(me.getUid(), p -> join.done(
+                p == null || !p.exists ? Collections.emptyMap() : userContext(p, email != null ? email : p.email, intents)));
+    }
 
-            default:
-                callback.accept(result);
+    private static Map<String, String> userContext(UserProfileStore.UserProfile p, String email, Set<String> intents) {
+        Map<String, String> map = new HashMap<>();
+        // every user intent gets these: "my registrations" and "my interests" classify as some user_* class
+        map.put("user_interests", p.interests == null || p.interests.isEmpty()
+                ? "(no interests found)" : String.join(", ", p.interests));
+        map.put("registered_events", p.registeredEvents == null || p.registeredEvents.isEmpty()
+                ? "You have no registered events." : String.join(", ", p.registeredEvents));
+        for (String intent : intents) {
+            switch (intent) {
+                case "user_name":
+                    map.put("user_name", p.name != null ? p.name : "(no name)");
+                    break;
+
+                case "user_email":
+                    map.put("user_email", email);
+                    break;
+
+                case "user_location":
+                    map.put("user_location", p.location != null ? p.location : "(no location saved)");
+                    break;
+            }
         }
+        return map;
     }
 
-    private static void fetchUserContext(String email, String intent, Consumer<Map<String, String>> callback) {
-        if (email == null || email.isEmpty()) {
-            callback.accept(new HashMap<>());
+    /** Mirror first; one Firestore name lookup only while the mirror is still empty. */
+    private static void fetchEventContext(Context ctx, String eventQuery, Set<String> intents, Join join) {
+        if (eventQuery == null || eventQuery.trim().isEmpty()) {
+            join.done(Collections.singletonMap("event", "(no event named in the question)"));
             return;
         }
-
-        db.collection("users")
-                .whereEqualTo("email", email)
-                .limit(1)
-                .get()
-                .addOnSuccessListener(q -> {
-                    Map<String, String> map = new HashMap<>();
-                    if (!q.isEmpty()) {
-                        DocumentSnapshot doc = q.getDocuments().get(0);
-
-                        switch (intent) {
-                            case "user_name":
-                                String name = doc.getString("name");
-                                map.put("user_name", name != null ? name : "(no name)");
-                                break;
-
-                            case "user_email":
-                                map.put("user_email", email);
-                                break;
-
-                            case "user_interests":
-                                List<String> interests = (List<String>) doc.get("interests");
-                                if (interests != null && !interests.isEmpty()) {
-                                    map.put("user_interests", String.join(", ", interests));
-                                } else {
-                                    map.put("user_interests", "(no interests found)");
-                                }
-                                break;
-
-                            case "registered_events":
-                                List<String> events = (List<String>) doc.get("registeredEvents");
-                                if (events != null && !events.isEmpty()) {
-                                    map.put("registered_events", String.join(", ", events));
-                                } else {
-                                    map.put("registered_events", "You have no registered events.");
-                                }
-                                break;
-                        }
+        EventStore.get(ctx).query(
+                store -> store.count() == 0 ? null : Optional.ofNullable(store.bestNameMatch(eventQuery)),
+                match -> {
+                    if (match != null) {
+                        join.done(eventContext(match.orElse(null), eventQuery, intents));
+                        return;
                     }
-                    callback.accept(map);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("DbProvider", "Error fetching user: ", e);
-                    callback.accept(new HashMap<>());
+                    db.collection("createdEvents").whereEqualTo("name", eventQuery).limit(1)
+                            .get()
+                            .addOnSuccessListener(q -> join.done(eventContext(
+                                    q.isEmpty() ? null : EventStore.Event.of(q.getDocuments().get(0)), eventQuery, intents)))
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error fetching event: ", e);
+                                join.done(Collections.emptyMap());
+                            });
                 });
     }
 
-    private static void fetchEventContext(String intent, Consumer<Map<String, String>> callback) {
-        // Example: fetch global "createdEvents" collection
-        db.collection("createdEvents")
-                .limit(1)
-                .get()
-                .addOnSuccessListener(q -> {
-                    Map<String, String> map = new HashMap<>();
-                    if (!q.isEmpty()) {
-                        DocumentSnapshot doc = q.getDocuments().get(0);
-                        switch (intent) {
-                            case "event_location":
-                                map.put("event_location", doc.getString("location"));
-                                break;
-                            case "event_date":
-                                map.put("event_date", doc.getString("date"));
-                                break;
-                            case "event_time":
-                                map.put("event_time", doc.getString("time"));
-                                break;
-                            case "event_details":
-                                map.put("event_details", doc.getString("description"));
-                                break;
-                            case "event_about":
-                                map.put("event_about", doc.getString("about"));
-                                break;
-                            case "event_category":
-                                map.put("event_category", doc.getString("category"));
-                                break;
-                        }
-                    }
-                    callback.accept(map);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e("DbProvider", "Error fetching event: ", e);
-                    callback.accept(new HashMap<>());
-                });
+    private static Map<String, String> eventContext(EventStore.Event ev, String eventQuery, Set<String> intents) {
+        Map<String, String> map = new HashMap<>();
+        if (ev == null) {
+            map.put("event", "(no event matches \"" + eventQuery + "\")");
+            return map;
+        }
+        // every event intent gets name, date and time; event_name and the date/time intents need nothing else
+        map.put("event_name", ev.name);
+        map.put("event_date", ev.date);
+        map.put("event_time", ev.time);
+        for (String intent : intents) {
+            switch (intent) {
+                case "event_description":
+                    map.put("event_description", ev.description);
+                    break;
+                case "event_location":
+                    map.put("event_location", ev.address);
+                    break;
+                case "event_category":
+                    map.put("event_category", ev.domain);
+                    break;
+            }
+        }
+        map.values().removeIf(v -> v == null);
+        return map;
+    }
+
+    /** Merges the parts' fields and calls back once all of them are in. Main thread only. */
+    private static final class Join {
+        private final Consumer<Map<String, String>> callback;
+        private final Map<String, String> merged = new HashMap<>();
+        private int pending;
+
+        Join(int parts, Consumer<Map<String, String>> callback) {
+            this.callback = callback;
+            this.pending = parts;
+            if (parts == 0) callback.accept(merged);
+        }
+
+        void done(Map<String, String> part) {
+            merged.putAll(part);
+            if (--pending == 0) callback.accept(merged);
+        }
     }
 
     public static String buildPrompt(String intent, Map<String, String> ctx) {
@@ -163,18 +194,35 @@ public class DbProvider {
             case "user_email":
                 sb.append("User asked for their email. Respond with the registered email.");
                 break;
+            case "user_location":
+                sb.append("User asked where they are based. Respond with the location saved in their profile.");
+                break;
             case "user_interests":
                 sb.append("User asked about their interests. Respond with the list of interests.");
                 break;
             case "registered_events":
                 sb.append("User asked what events they are registered for.");
                 break;
-            case "event_about":
-                sb.append("User asked what an event is about. Summarize using 'about' or 'description' fields.");
+            case "event_name":
+                sb.append("User asked for the name of an event. Respond with the event name.");
+                break;
+            case "event_date_time":
+            case "event_date":
+            case "event_time":
+                sb.append("User asked when an event takes place. Respond with the event date and time.");
+                break;
+            case "event_description":
+                sb.append("User asked what an event is about. Summarize using the 'event_description' field.");
+                break;
+            case "event_location":
+                sb.append("User asked where an event takes place. Respond with the event location.");
                 break;
             case "event_category":
                 sb.append("User asked the category of the event. Respond with the event category.");
                 break;
+            case "general_greeting":
+                sb.append("User greeted you. Greet them back briefly and offer help with events.");
+                break;
             default:
                 sb.append("Provide the best possible contextual response.");
         }
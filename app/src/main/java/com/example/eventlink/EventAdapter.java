@@ -10,19 +10,17 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.firestore.DocumentSnapshot;
-
 import java.util.List;
 
 public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHolder> {
 
     private Context context;
-    private List<DocumentSnapshot> eventList;
+    private List<EventStore.Event> eventList;
     private List<Double> distances; // ✅ Correct name
     private String userId, userEmail;
 
     public EventAdapter(Context context,
-                        List<DocumentSnapshot> eventList,
+                        List<EventStore.Event> eventList,
                         List<Double> distances,
                         String userId,
                         String userEmail) {
@@ -61,11 +59,11 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
     @Override
     public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
 
-        DocumentSnapshot doc = eventList.get(position);
+        EventStore.Event ev = eventList.get(position);
 
-        String name = doc.getString("name");
-        String domain = doc.getString("domain");
-        String address = doc.getString("address");
+        String name = ev.name;
+        String domain = ev.domain;
+        String address = ev.address;
         double distance = distances.get(position); // ✅ FIXED
 
         holder.eventName.setText(name);
@@ -76,11 +74,12 @@ public class EventAdapter extends RecyclerView.Adapter<EventAdapter.EventViewHol
         holder.itemView.setOnClickListener(v -> {
             Intent intent = new Intent(context, EventDescActivity.class);
 
+            intent.putExtra("eventId", ev.id);
             intent.putExtra("eventName", name);
             intent.putExtra("eventCategory", domain);
-            intent.putExtra("eventDate", doc.getString("date"));
-            intent.putExtra("eventImage", doc.getString("imageUrl"));
-            intent.putExtra("eventDescription", doc.getString("description"));
+            intent.putExtra("eventDate", ev.date);
+            intent.putExtra("eventImage", ev.imageUrl);
+            intent.putExtra("eventDescription", ev.description);
             intent.putExtra("eventLocation", address);
             intent.putExtra("userId", userId);
             intent.putExtra("userEmail", userEmail);
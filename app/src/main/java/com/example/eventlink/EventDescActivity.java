@@ -44,6 +44,16 @@ public class EventDescActivity extends AppCompatActivity {
         title.setText(eventName != null ? eventName : "Event");
         desc.setText(eventDescription != null ? eventDescription : "No description available");
         location.setText(eventLocation != null ? eventLocation : "Location not provided");
+
+        // ✅ Fill missing fields from the local event mirror
+        if (eventId != null && (eventName == null || eventDescription == null || eventLocation == null)) {
+            EventStore.get(this).query(store -> store.byId(eventId), ev -> {
+                if (ev == null || isFinishing()) return;
+                if (eventName == null && ev.name != null) { eventName = ev.name; title.setText(ev.name); }
+                if (eventDescription == null && ev.description != null) desc.setText(ev.description);
+                if (eventLocation == null && ev.address != null) location.setText(ev.address);
+            });
+        }
     }
 
     // ✅ PASS THE SAME DYNAMIC EVENT NAME + ID
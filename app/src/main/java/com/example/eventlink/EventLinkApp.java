@@ -0,0 +1,19 @@
+package com.example.eventlink;
+
+import android.app.Application;
+
+/**
+ * Process entry point. Kicks off background loading of the on-device models
+ * so the first screen that needs them does not pay for parsing, and starts
+ * the local event mirror's sync.
+ */
+public class EventLinkApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        RecommenderHolder.warmUp(this);
+        ClassifierHolder.warmUp(this);
+        EventStore.get(this).startSync();   // schedules the model refit after its catch-up
+    }
+}
@@ -0,0 +1,416 @@
+package com.example.eventlink;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Versioned binary format for the event recommender model.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ *   int magic 'ELEV', int version
+ *   int nFeatures, int nEvents, int nnz, int poolLen
+ *   int ngramMin, int ngramMax, int englishStopWords (0/1)
+ *   int[nFeatures + 1] vocab starts, char[poolLen] vocab pool
+ *   float[nFeatures] idf
+ *   int[nEvents + 1] rowStart, int[nnz] rowTerms, float[nnz] rowWeights
+ *   nEvents x (id, name, category, imageUrl, date) as (int len, char[len])
+ * </pre>
+ * Loads through a memory-mapped ByteBuffer with bulk array copies, no JSON DOM.
+ * The JSON asset is still the source of truth: the build converts it into the
+ * {@link #BINARY_ASSET} asset (convertEventModel in app/build.gradle.kts), and
+ * without that asset it is converted once per install and cached in app storage.
+ */
+final class EventModelFormat {
+
+    private static final String TAG = "EventModelFormat";
+
+    static final int MAGIC = 0x454C4556; // "ELEV"
+    static final int VERSION = 2;
+
+    static final String JSON_ASSET = "weights_events.json";
+    static final String BINARY_ASSET = "weights_events.bin";
+
+    /** Raw model arrays shared by the JSON loader, the binary reader/writer and EventRecommender. */
+    static final class Model {
+        final TermTable vocab;
+        final float[] idf;
+        final int[] rowStart;
+        final int[] rowTerms;
+        final float[] rowWeights;
+        final EventRecommender.EventMeta[] metas;
+        final TfidfAnalyzer analyzer;    // vectorizer config the vocab was fitted with
+
+        Model(TermTable vocab, float[] idf, int[] rowStart, int[] rowTerms, float[] rowWeights,
+              EventRecommender.EventMeta[] metas, TfidfAnalyzer analyzer) {
+            this.vocab = vocab; this.idf = idf;
+            this.rowStart = rowStart; this.rowTerms = rowTerms; this.rowWeights = rowWeights;
+            this.metas = metas; this.analyzer = analyzer;
+        }
+    }
+
+    private EventModelFormat() {}
+
+    // ---------- Loading ----------
+
+    /** On-device refit if one was published for this install, else {@link #loadShipped}. */
+    static Model load(Context ctx) throws Exception {
+        File refit = refitFile(ctx);
+        if (refit.exists()) {
+            try {
+                return read(mapFile(refit));
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable refit model: " + e.getMessage());
+                refit.delete();
+            }
+        }
+        return loadShipped(ctx);
+    }
+
+    /**
+     * The bundled model: the binary asset if one is shipped, else the cached conversion for this
+     * install, else parse the JSON asset and write the cache for next time.
+     */
+    static Model loadShipped(Context ctx) throws Exception {
+        AssetManager am = ctx.getAssets();
+        ByteBuffer shipped = null;
+        try {
+            shipped = mapAsset(am, BINARY_ASSET);
+        } catch (IOException missing) {
+            // no binary asset shipped, use the converted cache
+        }
+        if (shipped != null) {
+            try {
+                return read(shipped);
+            } catch (IOException | RuntimeException e) {
+                // truncated or mismatched asset (e.g. BufferUnderflowException): a build problem, not a missing file
+                Log.e(TAG, "Shipped " + BINARY_ASSET + " is corrupt, falling back to the JSON asset: " + e);
+            }
+        }
+
+        File cache = cacheFile(ctx);
+        if (cache.exists()) {
+            try {
+                return read(mapFile(cache));
+            } catch (Exception e) {
+                Log.w(TAG, "Discarding unreadable model cache: " + e.getMessage());
+                cache.delete();
+            }
+        }
+
+        Model m = fromJson(readAsset(am, JSON_ASSET));
+        try {
+            deleteStaleCaches(ctx);
+            write(m, cache);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache binary model: " + e.getMessage());
+        }
+        return m;
+    }
+
+    private static File cacheFile(Context ctx) {
+        return new File(ctx.getNoBackupFilesDir(), "weights_events" + installSuffix(ctx));
+    }
+
+    /** Where {@link EventModelRefit} publishes models rebuilt from the live catalog. */
+    static File refitFile(Context ctx) {
+        return new File(ctx.getNoBackupFilesDir(), "weights_events-refit" + installSuffix(ctx));
+    }
+
+    /** Format version plus install time, so an app update never reads models written by an older build. */
+    private static String installSuffix(Context ctx) {
+        long stamp = 0;
+        try {
+            PackageInfo pi = ctx.getPackageManager().getPackageInfo(ctx.getPackageName(), 0);
+            stamp = pi.lastUpdateTime;
+        } catch (Exception ignored) {}
+        return "-v" + VERSION + "-" + stamp + ".bin";
+    }
+
+    /** Drops converted caches and refits written by other versions or installs. */
+    static void deleteStaleCaches(Context ctx) {
+        String keep = installSuffix(ctx);
+        File[] old = ctx.getNoBackupFilesDir().listFiles((dir, name) ->
+                name.startsWith("weights_events") && name.endsWith(".bin") && !name.endsWith(keep));
+        if (old != null) for (File f : old) f.delete();
+    }
+
+    /** Maps a stored (noCompress) asset, or copies it to the heap if it was compressed. */
+    static ByteBuffer mapAsset(AssetManager am, String name) throws IOException {
+        try (AssetFileDescriptor afd = am.openFd(name);
+             FileInputStream in = afd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+        } catch (IOException compressed) {
+            // openFd only works for stored (uncompressed) assets; fall back to a heap copy
+            try (InputStream in = am.open(name)) {
+                byte[] all = readBytes(in);
+                return ByteBuffer.wrap(all);
+            }
+        }
+    }
+
+    static MappedByteBuffer mapFile(File f) throws IOException {
+        try (FileInputStream in = new FileInputStream(f)) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+        }
+    }
+
+    // ---------- Binary ----------
+
+    static Model read(ByteBuffer buf) throws IOException {
+        ByteBuffer b = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < 36 || b.getInt() != MAGIC) throw new IOException("Not an event model file");
+        int version = b.getInt();
+        if (version != VERSION) throw new IOException("Unsupported event model version " + version);
+
+        int nFeatures = b.getInt(), nEvents = b.getInt(), nnz = b.getInt(), poolLen = b.getInt();
+        TfidfAnalyzer analyzer = new TfidfAnalyzer(b.getInt(), b.getInt(), b.getInt() != 0);
+
+        int[] starts = getInts(b, nFeatures + 1);
+        char[] pool = new char[poolLen];
+        b.asCharBuffer().get(pool);
+        b.position(b.position() + 2 * poolLen);
+
+        float[] idf = getFloats(b, nFeatures);
+        int[] rowStart = getInts(b, nEvents + 1);
+        int[] rowTerms = getInts(b, nnz);
+        float[] rowWeights = getFloats(b, nnz);
+
+        EventRecommender.EventMeta[] metas = new EventRecommender.EventMeta[nEvents];
+        for (int e = 0; e < nEvents; e++) {
+            metas[e] = new EventRecommender.EventMeta(
+                    getString(b), getString(b), getString(b), getString(b), getString(b));
+        }
+        return new Model(new TermTable(pool, starts), idf, rowStart, rowTerms, rowWeights, metas, analyzer);
+    }
+
+    /** Writes to a temp file and renames, so readers never see a partial model. */
+    static void write(Model m, File out) throws IOException {
+        int nFeatures = m.idf.length, nEvents = m.metas.length, nnz = m.rowTerms.length;
+        char[] pool = m.vocab.pool;
+
+        long size = 4L * 9
+                + 4L * (nFeatures + 1) + 2L * pool.length
+                + 4L * nFeatures
+                + 4L * (nEvents + 1) + 8L * nnz;
+        for (EventRecommender.EventMeta em : m.metas) {
+            size += stringSize(em.id) + stringSize(em.name) + stringSize(em.category)
+                    + stringSize(em.imageUrl) + stringSize(em.date);
+        }
+
+        ByteBuffer b = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putInt(VERSION);
+        b.putInt(nFeatures).putInt(nEvents).putInt(nnz).putInt(pool.length);
+        b.putInt(m.analyzer.ngramMin).putInt(m.analyzer.ngramMax).putInt(m.analyzer.englishStopWords ? 1 : 0);
+        for (int v : m.vocab.start) b.putInt(v);
+        for (char c : pool) b.putChar(c);
+        for (float v : m.idf) b.putFloat(v);
+        for (int v : m.rowStart) b.putInt(v);
+        for (int v : m.rowTerms) b.putInt(v);
+        for (float v : m.rowWeights) b.putFloat(v);
+        for (EventRecommender.EventMeta em : m.metas) {
+            putString(b, em.id); putString(b, em.name); putString(b, em.category);
+            putString(b, em.imageUrl); putString(b, em.date);
+        }
+        b.flip();
+
+        File tmp = new File(out.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp); FileChannel ch = fos.getChannel()) {
+            while (b.hasRemaining()) ch.write(b);
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(out)) {
+            tmp.delete();
+            throw new IOException("Could not publish " + out);
+        }
+    }
+
+    private static int[] getInts(ByteBuffer b, int n) {
+        int[] out = new int[n];
+        b.asIntBuffer().get(out);
+        b.position(b.position() + 4 * n);
+        return out;
+    }
+
+    private static float[] getFloats(ByteBuffer b, int n) {
+        float[] out = new float[n];
+        b.asFloatBuffer().get(out);
+        b.position(b.position() + 4 * n);
+        return out;
+    }
+
+    private static String getString(ByteBuffer b) {
+        int len = b.getInt();
+        char[] cs = new char[len];
+        b.asCharBuffer().get(cs);
+        b.position(b.position() + 2 * len);
+        return new String(cs);
+    }
+
+    private static void putString(ByteBuffer b, String s) {
+        if (s == null) s = "";
+        b.putInt(s.length());
+        for (int i = 0; i < s.length(); i++) b.putChar(s.charAt(i));
+    }
+
+    private static long stringSize(String s) {
+        return 4 + 2L * (s == null ? 0 : s.length());
+    }
+
+    // ---------- JSON (training pipeline output) ----------
+
+    static Model fromJson(String json) throws Exception {
+        JSONObject root = new JSONObject(json);
+
+        JSONObject vec = root.getJSONObject("vectorizer");
+        JSONObject jVocab = vec.getJSONObject("vocab");
+
+        int maxIdx = -1;
+        for (Iterator<String> it = jVocab.keys(); it.hasNext();) {
+            maxIdx = Math.max(maxIdx, jVocab.getInt(it.next()));
+        }
+        int nFeatures = maxIdx + 1;
+
+        String[] terms = new String[nFeatures];
+        for (Iterator<String> it = jVocab.keys(); it.hasNext();) {
+            String term = it.next();
+            terms[jVocab.getInt(term)] = term;
+        }
+        TermTable vocab = new TermTable(terms);
+
+        JSONArray ngrams = vec.optJSONArray("ngram_range");
+        TfidfAnalyzer analyzer = new TfidfAnalyzer(
+                ngrams != null ? ngrams.optInt(0, 1) : 1,
+                ngrams != null ? ngrams.optInt(1, 1) : 1,
+                "english".equals(vec.optString("stop_words", null)));
+
+        float[] idf = new float[nFeatures];
+        JSONObject jIdf = vec.getJSONObject("idf");
+        for (int t = 0; t < nFeatures; t++) {
+            idf[t] = terms[t] == null ? 1f : (float) jIdf.optDouble(terms[t], 1.0);
+        }
+
+        // Only events that have both a vector and metadata are indexed, in id order
+        JSONObject ev = root.getJSONObject("event_vectors");
+        JSONObject meta = root.getJSONObject("events");
+        List<String> order = new ArrayList<>();
+        for (Iterator<String> it = ev.keys(); it.hasNext();) {
+            String eid = it.next();
+            if (meta.has(eid)) order.add(eid);
+        }
+        Collections.sort(order);
+        int nEvents = order.size();
+
+        EventRecommender.EventMeta[] metas = new EventRecommender.EventMeta[nEvents];
+        int[] rowStart = new int[nEvents + 1];
+        IntFloatBuffer row = new IntFloatBuffer();
+        IntFloatBuffer all = new IntFloatBuffer();
+        for (int e = 0; e < nEvents; e++) {
+            String eid = order.get(e);
+            JSONObject o = meta.getJSONObject(eid);
+            metas[e] = new EventRecommender.EventMeta(
+                    eid,
+                    o.optString("name", ""),
+                    o.optString("category", ""),
+                    o.optString("image_url", ""),
+                    o.optString("date", "")
+            );
+
+            JSONObject w = ev.getJSONObject(eid);
+            row.clear();
+            for (Iterator<String> it = w.keys(); it.hasNext();) {
+                String t = it.next();
+                int idx = vocab.find(t);
+                if (idx >= 0) row.add(idx, (float) w.getDouble(t));
+            }
+            row.sortByKey();
+            all.addAll(row);
+            rowStart[e + 1] = all.size;
+        }
+
+        return new Model(vocab, idf, rowStart,
+                Arrays.copyOf(all.keys, all.size), Arrays.copyOf(all.values, all.size), metas, analyzer);
+    }
+
+    /** Growable (int, float) pair list used while assembling CSR rows. */
+    static final class IntFloatBuffer {
+        int[] keys = new int[64];
+        float[] values = new float[64];
+        int size;
+
+        void add(int k, float v) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = k;
+            values[size++] = v;
+        }
+
+        void addAll(IntFloatBuffer o) {
+            for (int i = 0; i < o.size; i++) add(o.keys[i], o.values[i]);
+        }
+
+        void clear() { size = 0; }
+
+        /** Insertion sort; rows are short. */
+        void sortByKey() {
+            for (int i = 1; i < size; i++) {
+                int k = keys[i]; float v = values[i];
+                int j = i - 1;
+                while (j >= 0 && keys[j] > k) { keys[j + 1] = keys[j]; values[j + 1] = values[j]; j--; }
+                keys[j + 1] = k; values[j + 1] = v;
+            }
+        }
+    }
+
+    // ---------- IO ----------
+
+    private static String readAsset(AssetManager am, String name) throws Exception {
+        try (InputStream in = am.open(name)) {
+            return readFully(in);
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) sb.append(line);
+            return sb.toString();
+        }
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        byte[] buf = new byte[16 * 1024];
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        int n;
+        while ((n = in.read(buf)) > 0) bos.write(buf, 0, n);
+        return bos.toByteArray();
+    }
+}
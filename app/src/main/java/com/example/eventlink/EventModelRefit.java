@@ -0,0 +1,265 @@
+package com.example.eventlink;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Rebuilds the event TF-IDF model (vocab, idf, event vectors) from the event catalog on the device.
+ * <p>
+ * Two streaming passes over the catalog: the first counts document frequencies, the second
+ * vectorizes each event straight into CSR rows. Document text is never held, only the term
+ * counts (pruned when they exceed {@link #MAX_TRACKED_TERMS}), event metadata and the finished
+ * rows. Vectorizing follows the shipped model: same analyzer, sklearn smooth idf, l2-normalized
+ * rows, alphabetical vocab.
+ * <p>
+ * The bundled catalog (weights_events) ships vectors but not its texts, so it joins a refit as
+ * term counts recovered from its rows (see {@link #withCatalog}); the refit model keeps serving
+ * those events alongside the created ones.
+ */
+final class EventModelRefit {
+
+    private static final String TAG = "EventModelRefit";
+
+    static final int MAX_FEATURES = 20_000;          // vocab cap, most frequent terms (by df) win
+    static final int MAX_TRACKED_TERMS = 200_000;    // df table bound during the first pass
+    static final int MIN_EVENTS = 5;                 // fewer created events and the shipped model is better
+    static final long MIN_INTERVAL_MS = 24L * 60 * 60 * 1000;
+
+    /** One catalog entry, as stored in createdEvents, or a bundled event given as term counts. */
+    static final class EventDoc {
+        final String id, name, description, domain, date, imageUrl;
+        final String[] terms;     // bundled events only: analyzed terms and their counts
+        final float[] counts;
+
+        EventDoc(String id, String name, String description, String domain, String date, String imageUrl) {
+            this(id, name, description, domain, date, imageUrl, null, null);
+        }
+
+        EventDoc(String id, String name, String description, String domain, String date, String imageUrl,
+                 String[] terms, float[] counts) {
+            this.id = id; this.name = name; this.description = description;
+            this.domain = domain; this.date = date; this.imageUrl = imageUrl;
+            this.terms = terms; this.counts = counts;
+        }
+
+        boolean bundled() {
+            return terms != null;
+        }
+
+        String text() {
+            return (name == null ? "" : name) + " " + (description == null ? "" : description);
+        }
+    }
+
+    /** A catalog that can be streamed more than once (one pass per call). */
+    interface EventSource {
+        void forEach(Consumer<EventDoc> sink) throws Exception;
+    }
+
+    private EventModelRefit() {}
+
+    /**
+     * Refits from the local event mirror (no network) and publishes the result, at most once per
+     * {@link #MIN_INTERVAL_MS}. EventStore calls this after each launch's catch-up sync.
+     */
+    static void schedule(Context ctx) {
+        Context app = ctx.getApplicationContext();
+        File out = EventModelFormat.refitFile(app);
+        if (out.exists() && System.currentTimeMillis() - out.lastModified() < MIN_INTERVAL_MS) return;
+        RecommenderHolder.refit(app, EventStore.get(app).asEventSource());
+    }
+
+    /**
+     * The shipped model's events followed by source's; an event in source replaces a bundled
+     * one with the same id. Bundled term counts are recovered from the tf-idf rows: weight / idf
+     * is proportional to the count, scaled so each row's rarest term counts 1.
+     */
+    static EventSource withCatalog(EventModelFormat.Model shipped, EventSource source) {
+        return sink -> {
+            Set<String> ids = new HashSet<>();
+            source.forEach(doc -> {
+                if (doc.id != null) ids.add(doc.id);
+            });
+            for (int e = 0; e < shipped.metas.length; e++) {
+                EventRecommender.EventMeta m = shipped.metas[e];
+                if (ids.contains(m.id)) continue;
+                int from = shipped.rowStart[e], to = shipped.rowStart[e + 1];
+                String[] terms = new String[to - from];
+                float[] counts = new float[to - from];
+                float min = Float.MAX_VALUE;
+                for (int i = from; i < to; i++) {
+                    terms[i - from] = shipped.vocab.term(shipped.rowTerms[i]);
+                    counts[i - from] = shipped.rowWeights[i] / shipped.idf[shipped.rowTerms[i]];
+                    if (counts[i - from] > 0) min = Math.min(min, counts[i - from]);
+                }
+                for (int i = 0; i < counts.length; i++) counts[i] = Math.max(1f, Math.round(counts[i] / min));
+                sink.accept(new EventDoc(m.id, m.name, null, m.category, m.date, m.imageUrl, terms, counts));
+            }
+            source.forEach(sink);
+        };
+    }
+
+    /** Builds a model from source, or returns null when too few of its events are created ones. */
+    static EventModelFormat.Model fit(EventSource source, TfidfAnalyzer analyzer) throws Exception {
+        // ----- Pass 1: document frequencies -----
+        DfCounter df = new DfCounter();
+        int[] nBundled = {0};
+        source.forEach(doc -> {
+            if (doc.id == null) return;
+            df.nDocs++;
+            if (doc.bundled()) {
+                nBundled[0]++;
+                for (String t : doc.terms) df.term(t.toCharArray(), 0, t.length());
+            } else {
+                analyzer.analyze(doc.text(), df);
+            }
+        });
+        int nDocs = df.nDocs;
+        if (nDocs - nBundled[0] < MIN_EVENTS) return null;
+
+        String[] terms = df.topTerms(MAX_FEATURES);
+        Arrays.sort(terms);                          // sklearn assigns ids in term order
+        TermTable vocab = new TermTable(terms);
+        float[] idf = new float[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            idf[t] = (float) (Math.log((1.0 + nDocs) / (1.0 + df.counts.get(terms[t])[0])) + 1.0);
+        }
+        df.counts = null;
+
+        // ----- Pass 2: event vectors -----
+        RowBuilder rows = new RowBuilder(vocab, idf);
+        List<EventRecommender.EventMeta> metas = new ArrayList<>(nDocs);
+        source.forEach(doc -> {
+            if (doc.id == null) return;
+            metas.add(new EventRecommender.EventMeta(doc.id, str(doc.name), str(doc.domain),
+                    str(doc.imageUrl), str(doc.date)));
+            if (doc.bundled()) rows.addRow(doc.terms, doc.counts);
+            else rows.addRow(analyzer, doc.text());
+        });
+
+        return new EventModelFormat.Model(vocab, idf, rows.rowStart(),
+                Arrays.copyOf(rows.all.keys, rows.all.size), Arrays.copyOf(rows.all.values, rows.all.size),
+                metas.toArray(new EventRecommender.EventMeta[0]), analyzer);
+    }
+
+    private static String str(String s) {
+        return s == null ? "" : s;
+    }
+
+    /** Per-term document frequency; each term counts once per document. */
+    private static final class DfCounter implements TfidfAnalyzer.TermSink {
+        Map<String, int[]> counts = new HashMap<>();   // term -> {df, last doc}
+        int nDocs;
+
+        @Override
+        public void term(char[] buf, int off, int len) {
+            String t = new String(buf, off, len);
+            int[] c = counts.get(t);
+            if (c == null) {
+                if (counts.size() >= MAX_TRACKED_TERMS) prune();
+                counts.put(t, new int[] {1, nDocs});
+            } else if (c[1] != nDocs) {
+                c[0]++;
+                c[1] = nDocs;
+            }
+        }
+
+        /** Drops the rarest terms once the table is full; they could not make the vocab cap anyway. */
+        private void prune() {
+            int floor = 1;
+            while (counts.size() >= MAX_TRACKED_TERMS / 2) {
+                for (Iterator<int[]> it = counts.values().iterator(); it.hasNext();) {
+                    if (it.next()[0] <= floor) it.remove();
+                }
+                floor++;
+            }
+        }
+
+        String[] topTerms(int max) {
+            List<Map.Entry<String, int[]>> entries = new ArrayList<>(counts.entrySet());
+            if (entries.size() > max) {
+                entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                        ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                        : a.getKey().compareTo(b.getKey()));
+                entries = entries.subList(0, max);
+            }
+            String[] out = new String[entries.size()];
+            for (int i = 0; i < out.length; i++) out[i] = entries.get(i).getKey();
+            return out;
+        }
+    }
+
+    /** Vectorizes one document at a time into shared CSR arrays. */
+    private static final class RowBuilder implements TfidfAnalyzer.TermSink {
+        final TermTable vocab;
+        final float[] idf;
+        final int[] pos;                                  // term id -> index + 1 in row, 0 = absent
+        final EventModelFormat.IntFloatBuffer row = new EventModelFormat.IntFloatBuffer();
+        final EventModelFormat.IntFloatBuffer all = new EventModelFormat.IntFloatBuffer();
+        int[] starts = new int[64];
+        int nRows;
+
+        RowBuilder(TermTable vocab, float[] idf) {
+            this.vocab = vocab;
+            this.idf = idf;
+            this.pos = new int[idf.length];
+        }
+
+        @Override
+        public void term(char[] buf, int off, int len) {
+            int id = vocab.find(buf, off, len);
+            if (id < 0) return;
+            if (pos[id] == 0) {
+                row.add(id, 0f);
+                pos[id] = row.size;
+            }
+            row.values[pos[id] - 1] += 1f;
+        }
+
+        void addRow(TfidfAnalyzer analyzer, String text) {
+            row.clear();
+            analyzer.analyze(text, this);
+            finishRow();
+        }
+
+        void addRow(String[] terms, float[] counts) {
+            row.clear();
+            for (int i = 0; i < terms.length; i++) {
+                int id = vocab.find(terms[i]);
+                if (id < 0) continue;
+                row.add(id, counts[i]);
+            }
+            finishRow();
+        }
+
+        private void finishRow() {
+            double sumsq = 0.0;
+            for (int i = 0; i < row.size; i++) {
+                pos[row.keys[i]] = 0;
+                row.values[i] *= idf[row.keys[i]];
+                sumsq += (double) row.values[i] * row.values[i];
+            }
+            float norm = (float) Math.sqrt(Math.max(1e-12, sumsq));
+            for (int i = 0; i < row.size; i++) row.values[i] /= norm;
+            row.sortByKey();
+            all.addAll(row);
+
+            if (nRows + 2 > starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+            starts[++nRows] = all.size;
+        }
+
+        int[] rowStart() {
+            return Arrays.copyOf(starts, nRows + 1);
+        }
+    }
+}
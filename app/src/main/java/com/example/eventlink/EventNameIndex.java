@@ -0,0 +1,195 @@
+package com.example.eventlink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory trigram index over event names for typo-tolerant lookup.
+ * <p>
+ * Names and queries are lowercased and split into words of letters and digits; each word is padded
+ * ("  word ") and cut into trigrams, as pg_trgm does. A query walks the posting lists of its own
+ * trigrams only, so the cost follows how common those trigrams are, not the catalog size.
+ * <p>
+ * Score = 0.8 * containment (share of the query's trigrams found in the name)
+ * + 0.2 * Jaccard (penalizes names much longer than the query). An exact name scores 1.0.
+ * <p>
+ * Updates replace a name in place: the old slot is tombstoned and skipped by searches until
+ * enough slots are dead to rebuild the postings.
+ */
+final class EventNameIndex {
+
+    /** Matches below this are not returned. */
+    static final double MIN_SCORE = 0.45;
+
+    static final class Match {
+        final String id, name;
+        final double score;
+
+        Match(String id, String name, double score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+    }
+
+    private final Map<String, Integer> slotOf = new HashMap<>();   // event id -> live slot
+    private final Map<Long, Postings> postings = new HashMap<>();  // trigram -> slots, ascending
+    private String[] ids = new String[16];                         // null = dead slot
+    private String[] names = new String[16];
+    private int[] gramCount = new int[16];                         // distinct trigrams per slot
+    private int[] hits = new int[16];                              // search scratch, all zero between calls
+    private int nSlots, nDead;
+
+    /** Indexes id under name, replacing its previous name; a null name removes it. */
+    synchronized void put(String id, String name) {
+        if (id == null) return;
+        if (removeSlot(id)) maybeCompact();
+        if (name == null) return;
+        long[] grams = grams(name);
+        if (grams.length == 0) return;
+
+        if (nSlots == ids.length) grow();
+        int slot = nSlots++;
+        ids[slot] = id;
+        names[slot] = name;
+        gramCount[slot] = grams.length;
+        slotOf.put(id, slot);
+        for (long g : grams) postings.computeIfAbsent(g, k -> new Postings()).add(slot);
+    }
+
+    synchronized void remove(String id) {
+        if (removeSlot(id)) maybeCompact();
+    }
+
+    synchronized int size() {
+        return slotOf.size();
+    }
+
+    /** Slots in use, live and tombstoned; drops back to {@link #size()} on compaction. */
+    synchronized int slotCount() {
+        return nSlots;
+    }
+
+    /** Best matches first, at most limit, all scoring at least {@link #MIN_SCORE}. */
+    synchronized List<Match> search(String query, int limit) {
+        long[] q = grams(query);
+        if (q.length == 0 || limit <= 0) return Collections.emptyList();
+
+        int[] touched = new int[16];
+        int nTouched = 0;
+        for (long g : q) {
+            Postings p = postings.get(g);
+            if (p == null) continue;
+            for (int i = 0; i < p.size; i++) {
+                int slot = p.slots[i];
+                if (hits[slot]++ == 0) {
+                    if (nTouched == touched.length) touched = Arrays.copyOf(touched, nTouched * 2);
+                    touched[nTouched++] = slot;
+                }
+            }
+        }
+
+        PriorityQueue<Match> heap = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (int i = 0; i < nTouched; i++) {
+            int slot = touched[i];
+            int shared = hits[slot];
+            hits[slot] = 0;
+            if (ids[slot] == null) continue;
+            double containment = (double) shared / q.length;
+            double jaccard = (double) shared / (q.length + gramCount[slot] - shared);
+            double score = 0.8 * containment + 0.2 * jaccard;
+            if (score < MIN_SCORE || (heap.size() == limit && score < heap.peek().score)) continue;
+            heap.add(new Match(ids[slot], names[slot], score));
+            if (heap.size() > limit) heap.poll();
+        }
+        List<Match> out = new ArrayList<>(heap);
+        out.sort(WORST_FIRST.reversed());
+        return out;
+    }
+
+    /** Lower score first; on equal scores the later name is worse, so results read alphabetically. */
+    private static final Comparator<Match> WORST_FIRST = (a, b) ->
+            a.score != b.score ? Double.compare(a.score, b.score) : b.name.compareTo(a.name);
+
+    private boolean removeSlot(String id) {
+        Integer old = slotOf.remove(id);
+        if (old == null) return false;
+        ids[old] = null;
+        names[old] = null;
+        nDead++;
+        return true;
+    }
+
+    private void maybeCompact() {
+        if (nDead > 64 && nDead > nSlots / 2) compact();
+    }
+
+    /** Renumbers live slots and rebuilds the postings without the dead ones. */
+    private void compact() {
+        String[] oldIds = ids, oldNames = names;
+        int n = nSlots;
+        ids = new String[Math.max(16, slotOf.size() * 2)];
+        names = new String[ids.length];
+        gramCount = new int[ids.length];
+        hits = new int[ids.length];
+        nSlots = nDead = 0;
+        slotOf.clear();
+        postings.clear();
+        for (int s = 0; s < n; s++) {
+            if (oldIds[s] != null) put(oldIds[s], oldNames[s]);
+        }
+    }
+
+    private void grow() {
+        int cap = ids.length * 2;
+        ids = Arrays.copyOf(ids, cap);
+        names = Arrays.copyOf(names, cap);
+        gramCount = Arrays.copyOf(gramCount, cap);
+        hits = Arrays.copyOf(hits, cap);
+    }
+
+    /** Distinct padded trigrams of text, each packed as three 16-bit chars. */
+    static long[] grams(String text) {
+        if (text == null) return new long[0];
+        String s = text.toLowerCase(Locale.ROOT);
+        long[] out = new long[16];
+        int n = 0;
+        int i = 0;
+        while (i < s.length()) {
+            if (!Character.isLetterOrDigit(s.charAt(i))) { i++; continue; }
+            int start = i;
+            while (i < s.length() && Character.isLetterOrDigit(s.charAt(i))) i++;
+            // "  word ": two leading pads, one trailing, so short words still yield trigrams
+            char a = ' ', b = ' ';
+            for (int k = start; k <= i; k++) {
+                char c = k < i ? s.charAt(k) : ' ';
+                if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                out[n++] = ((long) a << 32) | ((long) b << 16) | c;
+                a = b;
+                b = c;
+            }
+        }
+        Arrays.sort(out, 0, n);
+        int d = 0;
+        for (int k = 0; k < n; k++) if (d == 0 || out[k] != out[d - 1]) out[d++] = out[k];
+        return Arrays.copyOf(out, d);
+    }
+
+    /** Growable int list of slots. */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+}
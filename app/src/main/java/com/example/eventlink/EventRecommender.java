@@ -1,32 +1,67 @@
 package com.example.eventlink;
 
 import android.content.Context;
-import android.content.res.AssetManager;
 
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Lightweight TF-IDF + cosine similarity recommender for events.
- * Loads pre-trained weights_events.json from assets/.
+ * Loads pre-trained weights_events.json from assets/ (through the binary
+ * form cached by {@link EventModelFormat}).
  */
 public class EventRecommender {
 
-    private final Map<String, Integer> vocab = new HashMap<>();
-    private final double[] idf;
-    private final Map<String, Map<String, Double>> eventVectors;
-    private final Map<String, EventMeta> events;
+    private final TermTable vocab;               // term -> id
+    private final TfidfAnalyzer analyzer;        // same tokens/n-grams/stop words as training
+    private final float[] idf;                   // [nFeatures]
     private final int nFeatures;
 
+    // Event tf-idf vectors in CSR layout; row e holds event ordinal e, sorted by term id
+    private final int[] rowStart;                // [nEvents + 1]
+    private final int[] rowTerms;
+    private final float[] rowWeights;
+    private final EventMeta[] metas;             // [nEvents]
+
+    // Category partition: normalized category -> small int id -> event ordinals in that category
+    private final Map<String, Integer> categoryIds;
+    private final String[] categoryNames;        // [nCategories], normalized
+    private final int[][] eventsByCategory;      // [nCategories][events]
+
+    // Inverted index: term id -> postings (event ordinal, weight)
+    private final int[] postingStart;            // [nFeatures + 1]
+    private final int[] postingEvents;
+    private final float[] postingWeights;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    // Ranked results per (model version, strict, topK, interests); lives and dies with this instance
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final int CACHE_SIZE = 64;
+    private volatile long version = VERSIONS.incrementAndGet();
+    private final ResultCache cache = new ResultCache(CACHE_SIZE);
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    // Events added/removed since load; replaced copy-on-write under liveLock, read once per query
+    private final Map<String, Integer> baseIds;  // event id -> base ordinal
+    private final Object liveLock = new Object();
+    private volatile LiveSegment live;
+
+    // Latest live change per event id, oldest first, so a refit can carry them over (guarded by liveLock)
+    private final LinkedHashMap<String, LiveChange> journal = new LinkedHashMap<>();
+    private long journalSeq;
+
     public static class EventMeta {
         public final String id, name, category, imageUrl, date;
+        /** Interned category id within the loaded model, -1 until indexed. */
+        public final int categoryId;
         public EventMeta(String id, String name, String category, String imageUrl, String date) {
+            this(id, name, category, imageUrl, date, -1);
+        }
+        EventMeta(String id, String name, String category, String imageUrl, String date, int categoryId) {
             this.id = id; this.name = name; this.category = category;
-            this.imageUrl = imageUrl; this.date = date;
+            this.imageUrl = imageUrl; this.date = date; this.categoryId = categoryId;
         }
     }
 
@@ -37,138 +72,631 @@ public class EventRecommender {
     }
 
     public EventRecommender(Context ctx) throws Exception {
-        JSONObject root = new JSONObject(readAsset(ctx.getAssets(), "weights_events.json"));
-
-        JSONObject vec = root.getJSONObject("vectorizer");
-        JSONObject jVocab = vec.getJSONObject("vocab");
-
-        int maxIdx = -1;
-        Iterator<String> it = jVocab.keys();
-        while (it.hasNext()) {
-            String term = it.next();
-            int idx = jVocab.getInt(term);
-            vocab.put(term, idx);
-            if (idx > maxIdx) maxIdx = idx;
-        }
-        nFeatures = maxIdx + 1;
-
-        double[] idfTmp = new double[nFeatures];
-        JSONObject jIdf = vec.getJSONObject("idf");
-        for (String term : vocab.keySet()) {
-            int idx = vocab.get(term);
-            idfTmp[idx] = jIdf.optDouble(term, 1.0);
-        }
-        this.idf = idfTmp;
-
-        JSONObject ev = root.getJSONObject("event_vectors");
-        Map<String, Map<String, Double>> evMap = new HashMap<>();
-        Iterator<String> evIds = ev.keys();
-        while (evIds.hasNext()) {
-            String eid = evIds.next();
-            JSONObject w = ev.getJSONObject(eid);
-            Map<String, Double> sparse = new HashMap<>();
-            Iterator<String> terms = w.keys();
-            while (terms.hasNext()) {
-                String t = terms.next();
-                sparse.put(t, w.getDouble(t));
+        this(EventModelFormat.load(ctx));
+    }
+
+    EventRecommender(EventModelFormat.Model m) {
+        vocab = m.vocab;
+        analyzer = m.analyzer;
+        idf = m.idf;
+        nFeatures = idf.length;
+        rowStart = m.rowStart;
+        rowTerms = m.rowTerms;
+        rowWeights = m.rowWeights;
+        int nEvents = m.metas.length;
+
+        // ----- Category partition -----
+        categoryIds = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<String> display = new ArrayList<>();
+        int[] counts = new int[nEvents];
+        metas = new EventMeta[nEvents];
+        for (int e = 0; e < nEvents; e++) {
+            EventMeta em = m.metas[e];
+            String key = normalizeCategory(em.category);
+            Integer cid = categoryIds.get(key);
+            if (cid == null) {
+                cid = names.size();
+                categoryIds.put(key, cid);
+                names.add(key);
+                display.add(em.category);
+            }
+            counts[cid]++;
+            metas[e] = new EventMeta(em.id, em.name, display.get(cid), em.imageUrl, em.date, cid);
+        }
+        categoryNames = names.toArray(new String[0]);
+        eventsByCategory = new int[categoryNames.length][];
+        for (int c = 0; c < categoryNames.length; c++) eventsByCategory[c] = new int[counts[c]];
+        int[] filled = new int[categoryNames.length];
+        for (int e = 0; e < nEvents; e++) {
+            int c = metas[e].categoryId;
+            eventsByCategory[c][filled[c]++] = e;
+        }
+
+        // ----- Inverted index (transpose of the CSR rows) -----
+        postingStart = new int[nFeatures + 1];
+        for (int p = 0; p < rowTerms.length; p++) postingStart[rowTerms[p] + 1]++;
+        for (int t = 0; t < nFeatures; t++) postingStart[t + 1] += postingStart[t];
+        postingEvents = new int[rowTerms.length];
+        postingWeights = new float[rowTerms.length];
+        int[] fill = Arrays.copyOf(postingStart, nFeatures);
+        for (int e = 0; e < nEvents; e++) {
+            for (int p = rowStart[e]; p < rowStart[e + 1]; p++) {
+                int at = fill[rowTerms[p]]++;
+                postingEvents[at] = e;
+                postingWeights[at] = rowWeights[p];
+            }
+        }
+
+        baseIds = new HashMap<>(nEvents * 2);
+        for (int e = 0; e < nEvents; e++) baseIds.put(metas[e].id, e);
+        live = new LiveSegment(nEvents);
+
+        int nCategories = categoryNames.length;
+        scratch = ThreadLocal.withInitial(() -> new Scratch(vocab, nEvents, nFeatures, nCategories));
+    }
+
+    /** Approximate resident size of the loaded model in bytes (arrays, vocab and event metadata). */
+    public long footprintBytes() {
+        long bytes = vocab.footprintBytes();
+        bytes += 4L * (idf.length + rowStart.length + rowTerms.length + rowWeights.length);
+        bytes += 4L * (postingStart.length + postingEvents.length + postingWeights.length);
+        for (int c = 0; c < categoryNames.length; c++) {
+            bytes += stringBytes(categoryNames[c]) + 16 + 4L * eventsByCategory[c].length;
+        }
+        for (EventMeta m : metas) {
+            // category strings are shared per partition and counted above
+            bytes += 32 + stringBytes(m.id) + stringBytes(m.name)
+                    + stringBytes(m.imageUrl) + stringBytes(m.date);
+        }
+        LiveSegment seg = live;
+        bytes += seg.removed.length;
+        for (int i = 0; i < seg.metas.length; i++) {
+            EventMeta m = seg.metas[i];
+            bytes += 32 + stringBytes(m.id) + stringBytes(m.name) + stringBytes(m.category)
+                    + stringBytes(m.imageUrl) + stringBytes(m.date) + 8L * seg.terms[i].length;
+        }
+        return bytes;
+    }
+
+    public int size() {
+        LiveSegment seg = live;
+        return metas.length - seg.nRemoved + seg.metas.length;
+    }
+
+    /** True if id is visible to recommendations, from the base model or the live segment. */
+    public boolean isIndexed(String id) {
+        LiveSegment seg = live;
+        Integer base = baseIds.get(id);
+        return (base != null && !seg.removed[base]) || seg.indexOf(id) >= 0;
+    }
+
+    /** Vectorizer config of this model, reused when refitting on device. */
+    TfidfAnalyzer analyzer() { return analyzer; }
+
+    /** Identifies the model state results were computed against. */
+    public long version() { return version; }
+
+    public long cacheHits() { return cacheHits.get(); }
+
+    public long cacheMisses() { return cacheMisses.get(); }
+
+    /** Small synchronized LRU of ranked result lists. */
+    private static final class ResultCache {
+        private final LinkedHashMap<String, List<RankedEvent>> map;
+
+        ResultCache(int capacity) {
+            map = new LinkedHashMap<String, List<RankedEvent>>(capacity * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<RankedEvent>> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized List<RankedEvent> get(String key) { return map.get(key); }
+
+        synchronized void put(String key, List<RankedEvent> value) { map.put(key, value); }
+
+        synchronized void clear() { map.clear(); }
+    }
+
+    /**
+     * Events indexed after load. Base events are never moved: an update or removal tombstones the
+     * base ordinal and the live copy (if any) is scored by a direct dot product, which is cheap for
+     * the handful of events created between model refreshes.
+     */
+    private static final class LiveSegment {
+        final EventMeta[] metas;
+        final String[] categoryKeys;             // normalized category per live event
+        final int[][] terms;                     // sorted term ids per live event
+        final float[][] weights;                 // l2-normalized tf-idf, parallel to terms
+        final boolean[] removed;                 // [nEvents] base ordinals hidden by an update/remove
+        final int nRemoved;
+
+        LiveSegment(int nEvents) {
+            this(new EventMeta[0], new String[0], new int[0][], new float[0][], new boolean[nEvents], 0);
+        }
+
+        LiveSegment(EventMeta[] metas, String[] categoryKeys, int[][] terms, float[][] weights,
+                    boolean[] removed, int nRemoved) {
+            this.metas = metas; this.categoryKeys = categoryKeys;
+            this.terms = terms; this.weights = weights;
+            this.removed = removed; this.nRemoved = nRemoved;
+        }
+
+        int indexOf(String id) {
+            for (int i = 0; i < metas.length; i++) if (metas[i].id.equals(id)) return i;
+            return -1;
+        }
+
+        /** Copy without live event i (i < 0 keeps all). */
+        LiveSegment without(int i, boolean[] removed, int nRemoved) {
+            int n = metas.length - (i < 0 ? 0 : 1);
+            EventMeta[] m = new EventMeta[n];
+            String[] k = new String[n];
+            int[][] t = new int[n][];
+            float[][] w = new float[n][];
+            for (int src = 0, dst = 0; src < metas.length; src++) {
+                if (src == i) continue;
+                m[dst] = metas[src]; k[dst] = categoryKeys[src]; t[dst] = terms[src]; w[dst++] = weights[src];
             }
-            evMap.put(eid, sparse);
+            return new LiveSegment(m, k, t, w, removed, nRemoved);
         }
-        this.eventVectors = evMap;
 
-        JSONObject meta = root.getJSONObject("events");
-        Map<String, EventMeta> m = new HashMap<>();
-        Iterator<String> ids = meta.keys();
-        while (ids.hasNext()) {
-            String id = ids.next();
-            JSONObject o = meta.getJSONObject(id);
-            m.put(id, new EventMeta(
-                    id,
-                    o.optString("name", ""),
-                    o.optString("category", ""),
-                    o.optString("image_url", ""),
-                    o.optString("date", "")
-            ));
+        LiveSegment plus(EventMeta meta, String key, int[] t, float[] w) {
+            int n = metas.length;
+            EventMeta[] m = Arrays.copyOf(metas, n + 1);
+            String[] k = Arrays.copyOf(categoryKeys, n + 1);
+            int[][] tt = Arrays.copyOf(terms, n + 1);
+            float[][] ww = Arrays.copyOf(weights, n + 1);
+            m[n] = meta; k[n] = key; tt[n] = t; ww[n] = w;
+            return new LiveSegment(m, k, tt, ww, removed, nRemoved);
+        }
+    }
+
+    /**
+     * Indexes a newly created (or edited) event so it can be recommended right away.
+     * The text is vectorized with the loaded vocab/idf, the same way training did (name + description).
+     */
+    public void addOrUpdateEvent(String id, String name, String description, String domain,
+                                 String date, String imageUrl) {
+        if (id == null) return;
+        String key = normalizeCategory(domain);
+        Integer cid = categoryIds.get(key);
+        String display = cid != null ? metas[eventsByCategory[cid][0]].category : domain;
+        EventMeta meta = new EventMeta(id, name, display, imageUrl, date, cid != null ? cid : -1);
+
+        int[] t;
+        float[] w;
+        Scratch s = scratch.get();
+        try {
+            textVector((name == null ? "" : name) + " " + (description == null ? "" : description), s);
+            sortText(s);
+            t = Arrays.copyOf(s.tTerms, s.tSize);
+            w = Arrays.copyOf(s.tWeights, s.tSize);
+        } finally {
+            s.clear();
+        }
+
+        synchronized (liveLock) {
+            LiveSegment seg = withoutEvent(live, id);
+            live = seg.plus(meta, key, t, w);
+            record(new LiveChange(++journalSeq, id, name, description, domain, date, imageUrl, false));
+            invalidate();
+        }
+    }
+
+    /** Hides an event (base or live) from recommendations. Returns false if it was not indexed. */
+    public boolean removeEvent(String id) {
+        if (id == null) return false;
+        synchronized (liveLock) {
+            // journaled even when not indexed here: a refit's catalog may still hold the event
+            record(new LiveChange(++journalSeq, id, null, null, null, null, null, true));
+            LiveSegment seg = live;
+            LiveSegment next = withoutEvent(seg, id);
+            if (next == seg) return false;
+            live = next;
+            invalidate();
+            return true;
+        }
+    }
+
+    /** One addOrUpdateEvent/removeEvent call, as journaled for {@link #carryOver}. */
+    static final class LiveChange {
+        final long seq;
+        final String id, name, description, domain, date, imageUrl;
+        final boolean removed;
+
+        LiveChange(long seq, String id, String name, String description, String domain, String date,
+                   String imageUrl, boolean removed) {
+            this.seq = seq; this.id = id; this.name = name; this.description = description;
+            this.domain = domain; this.date = date; this.imageUrl = imageUrl; this.removed = removed;
+        }
+    }
+
+    /** Caller holds liveLock. */
+    private void record(LiveChange c) {
+        journal.remove(c.id);    // re-inserted at the end, keeping the map in seq order
+        journal.put(c.id, c);
+    }
+
+    /** Journaled changes with seq &gt; afterSeq, oldest first. */
+    List<LiveChange> liveChangesSince(long afterSeq) {
+        synchronized (liveLock) {
+            List<LiveChange> out = new ArrayList<>();
+            for (LiveChange c : journal.values()) if (c.seq > afterSeq) out.add(c);
+            return out;
+        }
+    }
+
+    /**
+     * Re-applies changes journaled by the model this one replaces: adds of events this model's
+     * catalog did not contain, and removals of events it still contains. Returns how many applied.
+     */
+    int carryOver(List<LiveChange> changes) {
+        int n = 0;
+        for (LiveChange c : changes) {
+            if (c.removed) {
+                if (removeEvent(c.id)) n++;
+            } else if (!baseIds.containsKey(c.id)) {
+                addOrUpdateEvent(c.id, c.name, c.description, c.domain, c.date, c.imageUrl);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** seg minus any copy of id, or seg itself if id is not visible. Caller holds liveLock. */
+    private LiveSegment withoutEvent(LiveSegment seg, String id) {
+        int li = seg.indexOf(id);
+        Integer base = baseIds.get(id);
+        boolean hideBase = base != null && !seg.removed[base];
+        if (li < 0 && !hideBase) return seg;
+        boolean[] removed = seg.removed;
+        int nRemoved = seg.nRemoved;
+        if (hideBase) {
+            removed = removed.clone();
+            removed[base] = true;
+            nRemoved++;
         }
-        this.events = m;
+        return seg.without(li, removed, nRemoved);
     }
 
-    /** Recommend events for a given interest (category name). */
+    /** New version for the result cache; called after publishing a new segment. */
+    private void invalidate() {
+        version = VERSIONS.incrementAndGet();
+        cache.clear();
+    }
+
+    /** Per-thread score accumulator, reset through the touched list so queries never clear the whole catalog. */
+    private static final class Scratch implements TfidfAnalyzer.TermSink {
+        final TermTable vocab;
+        final double[] acc;
+        final boolean[] seen;
+        final int[] touched;
+        int nTouched;
+
+        // query vector: term ids and normalized weights, plus the vector of the text being added
+        final int[] qTerms;
+        final float[] qWeights;
+        int qSize;
+        final int[] tTerms;
+        final float[] tWeights;
+        int tSize;
+        // term id -> position + 1 in qTerms / tTerms (0 = absent), reset through the term lists
+        final int[] qPos;
+        final int[] tPos;
+
+        // categories selected by the query
+        final boolean[] allowed;
+        final int[] cats;
+        int nCats;
+
+        Scratch(TermTable vocab, int nEvents, int nFeatures, int nCategories) {
+            this.vocab = vocab;
+            acc = new double[nEvents];
+            seen = new boolean[nEvents];
+            touched = new int[nEvents];
+            qTerms = new int[nFeatures];
+            qWeights = new float[nFeatures];
+            tTerms = new int[nFeatures];
+            tWeights = new float[nFeatures];
+            qPos = new int[nFeatures];
+            tPos = new int[nFeatures];
+            allowed = new boolean[nCategories];
+            cats = new int[nCategories];
+        }
+
+        /** Term frequency of the text being analyzed. */
+        @Override
+        public void term(char[] buf, int off, int len) {
+            int idx = vocab.find(buf, off, len);
+            if (idx < 0) return;
+            int at = tPos[idx] - 1;
+            if (at < 0) {
+                at = tSize++;
+                tPos[idx] = at + 1;
+                tTerms[at] = idx;
+                tWeights[at] = 0f;
+            }
+            tWeights[at] += 1f;
+        }
+
+        void add(int e, double w) {
+            if (!seen[e]) { seen[e] = true; touched[nTouched++] = e; }
+            acc[e] += w;
+        }
+
+        void clear() {
+            for (int i = 0; i < nTouched; i++) {
+                int e = touched[i];
+                acc[e] = 0.0;
+                seen[e] = false;
+            }
+            nTouched = 0;
+            for (int i = 0; i < nCats; i++) allowed[cats[i]] = false;
+            nCats = 0;
+            for (int i = 0; i < qSize; i++) qPos[qTerms[i]] = 0;
+            for (int i = 0; i < tSize; i++) tPos[tTerms[i]] = 0;
+            qSize = 0;
+            tSize = 0;
+        }
+    }
+
+    /**
+     * Recommend events for a given interest (category name).
+     * Scores come from walking the postings of the query terms, so the cost grows with the
+     * number of matching postings; a bounded min-heap keeps only the best topK.
+     */
     public List<RankedEvent> recommend(String interest, int topK, boolean strictCategory) {
-        Map<String, Double> q = vectorize(interest);
+        if (interest == null) return Collections.emptyList();
+        return recommend(Collections.singletonList(interest), topK, strictCategory);
+    }
 
-        List<RankedEvent> out = new ArrayList<>();
-        for (String eid : eventVectors.keySet()) {
-            EventMeta meta = events.get(eid);
-            if (meta == null) continue;
+    /** Profile scoring: all interests (e.g. selectedInterests) ranked in one pass, exact category match. */
+    public List<RankedEvent> recommend(Collection<String> interests, int topK) {
+        return recommend(interests, topK, true);
+    }
 
-            if (strictCategory) {
-                if (!meta.category.equalsIgnoreCase(interest)) continue;
+    /**
+     * Builds one query vector from all interests (each interest l2-normalized, then summed and
+     * renormalized so every interest weighs the same), scores each candidate event once and
+     * returns a single de-duplicated ranking of events in any of the interests' categories.
+     * Results are cached per normalized query; the returned list is unmodifiable.
+     */
+    public List<RankedEvent> recommend(Collection<String> interests, int topK, boolean strictCategory) {
+        if (interests == null || interests.isEmpty() || topK <= 0) return Collections.emptyList();
+        List<String> lowerInterests = new ArrayList<>(interests.size());
+        for (String i : interests) if (i != null) lowerInterests.add(i.toLowerCase(Locale.ROOT));
+        if (lowerInterests.isEmpty()) return Collections.emptyList();
+
+        String key = cacheKey(lowerInterests, topK, strictCategory);
+        List<RankedEvent> cached = cache.get(key);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        cacheMisses.incrementAndGet();
+        List<RankedEvent> ranked = Collections.unmodifiableList(rank(lowerInterests, topK, strictCategory));
+        cache.put(key, ranked);
+        return ranked;
+    }
+
+    /** Lowercasing is all the analyzer and the category match care about; strict matching also trims. */
+    private String cacheKey(List<String> lowerInterests, int topK, boolean strictCategory) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(version).append(strictCategory ? "|s|" : "|c|").append(topK);
+        for (String i : lowerInterests) sb.append('\u0001').append(strictCategory ? i.trim() : i);
+        return sb.toString();
+    }
+
+    private List<RankedEvent> rank(List<String> lowerInterests, int topK, boolean strictCategory) {
+        return rank(lowerInterests, topK, strictCategory, null);
+    }
+
+    /** Uncached ranking down one scoring path, so tests can hold the two paths to the same result. */
+    List<RankedEvent> rankByPath(Collection<String> interests, int topK, boolean strictCategory, boolean byPostings) {
+        List<String> lowerInterests = new ArrayList<>(interests.size());
+        for (String i : interests) lowerInterests.add(i.toLowerCase(Locale.ROOT));
+        return rank(lowerInterests, topK, strictCategory, Boolean.valueOf(byPostings));
+    }
+
+    /** byPostings null picks the cheaper path: the selected partitions or the query's postings. */
+    private List<RankedEvent> rank(List<String> lowerInterests, int topK, boolean strictCategory, Boolean byPostings) {
+
+        PriorityQueue<RankedEvent> heap = new PriorityQueue<>(topK + 1, HEAP_ORDER);
+        LiveSegment seg = live;
+        boolean[] removed = seg.removed;
+        Scratch s = scratch.get();
+        try {
+            for (String interest : lowerInterests) addToQuery(interest, s);
+            normalizeQuery(s);
+
+            int nCandidates = resolveCategories(lowerInterests, strictCategory, s);
+            if (s.nCats == 0 && seg.metas.length == 0) return Collections.emptyList();
+
+            int postings = 0;
+            for (int i = 0; i < s.qSize; i++) postings += postingStart[s.qTerms[i] + 1] - postingStart[s.qTerms[i]];
+
+            if (byPostings == null ? nCandidates <= postings : !byPostings) {
+                // Small partition: score only its events, each with a primitive CSR dot product
+                sortQuery(s);
+                for (int c = 0; c < s.nCats; c++) {
+                    for (int ev : eventsByCategory[s.cats[c]]) {
+                        if (removed[ev]) continue;
+                        offer(heap, topK, new RankedEvent(metas[ev],
+                                dot(rowTerms, rowWeights, rowStart[ev], rowStart[ev + 1], s)));
+                    }
+                }
+                scoreLive(seg, lowerInterests, strictCategory, heap, topK, s);
             } else {
-                if (!(meta.category.equalsIgnoreCase(interest) ||
-                        meta.category.toLowerCase().contains(interest.toLowerCase())))
-                    continue;
-            }
+                for (int i = 0; i < s.qSize; i++) {
+                    int idx = s.qTerms[i];
+                    double qw = s.qWeights[i];
+                    for (int p = postingStart[idx]; p < postingStart[idx + 1]; p++) {
+                        int ev = postingEvents[p];
+                        if (s.allowed[metas[ev].categoryId] && !removed[ev]) s.add(ev, qw * postingWeights[p]);
+                    }
+                }
+                for (int i = 0; i < s.nTouched; i++) {
+                    int ev = s.touched[i];
+                    offer(heap, topK, new RankedEvent(metas[ev], s.acc[ev]));
+                }
+                sortQuery(s);
+                scoreLive(seg, lowerInterests, strictCategory, heap, topK, s);
 
-            double score = cosine(q, eventVectors.get(eid));
-            out.add(new RankedEvent(meta, score));
+                // Category events the query never touched still rank (with score 0) when we are short
+                for (int c = 0; c < s.nCats && heap.size() < topK; c++) {
+                    for (int ev : eventsByCategory[s.cats[c]]) {
+                        if (heap.size() >= topK) break;
+                        if (!s.seen[ev] && !removed[ev]) heap.add(new RankedEvent(metas[ev], 0.0));
+                    }
+                }
+            }
+        } finally {
+            s.clear();
         }
 
+        List<RankedEvent> out = new ArrayList<>(heap);
         out.sort((a, b) -> Double.compare(b.score, a.score));
-        if (out.size() > topK) return out.subList(0, topK);
         return out;
     }
 
-    // ----- Helpers -----
-    private Map<String, Double> vectorize(String text) {
-        Map<String, Integer> tf = new HashMap<>();
-        for (String tok : tokenize(text)) {
-            tf.put(tok, tf.getOrDefault(tok, 0) + 1);
+    private static final Comparator<RankedEvent> HEAP_ORDER = (a, b) -> Double.compare(a.score, b.score);
+
+    private static void offer(PriorityQueue<RankedEvent> heap, int topK, RankedEvent r) {
+        if (heap.size() < topK) {
+            heap.add(r);
+        } else if (r.score > heap.peek().score) {
+            heap.poll();
+            heap.add(r);
         }
-        if (tf.isEmpty()) return Collections.emptyMap();
+    }
+
+    /** Marks the categories the interests select in s.allowed/s.cats and returns how many events they hold. */
+    private int resolveCategories(List<String> lowerInterests, boolean strictCategory, Scratch s) {
+        int nEvents = 0;
+        for (String interest : lowerInterests) {
+            if (strictCategory) {
+                Integer cid = categoryIds.get(interest.trim());
+                if (cid != null) nEvents += allow(cid, s);
+            } else {
+                for (int c = 0; c < categoryNames.length; c++) {
+                    if (categoryNames[c].contains(interest)) nEvents += allow(c, s);
+                }
+            }
+        }
+        return nEvents;
+    }
+
+    private int allow(int cid, Scratch s) {
+        if (s.allowed[cid]) return 0;
+        s.allowed[cid] = true;
+        s.cats[s.nCats++] = cid;
+        return eventsByCategory[cid].length;
+    }
+
+    /** Live events in the selected categories, scored against the (sorted) query. */
+    private void scoreLive(LiveSegment seg, List<String> lowerInterests, boolean strictCategory,
+                           PriorityQueue<RankedEvent> heap, int topK, Scratch s) {
+        for (int i = 0; i < seg.metas.length; i++) {
+            int cid = seg.metas[i].categoryId;
+            boolean match = cid >= 0
+                    ? s.allowed[cid]
+                    : matchesCategory(seg.categoryKeys[i], lowerInterests, strictCategory);
+            if (match) {
+                offer(heap, topK, new RankedEvent(seg.metas[i],
+                        dot(seg.terms[i], seg.weights[i], 0, seg.terms[i].length, s)));
+            }
+        }
+    }
+
+    /** Category test for live events whose category the base model has never seen. */
+    private static boolean matchesCategory(String key, List<String> lowerInterests, boolean strictCategory) {
+        for (String interest : lowerInterests) {
+            if (strictCategory ? key.equals(interest.trim()) : key.contains(interest)) return true;
+        }
+        return false;
+    }
+
+    /** Sparse dot product of a sorted row slice with the (sorted) query vector. */
+    private static double dot(int[] terms, float[] weights, int from, int to, Scratch s) {
+        double sum = 0.0;
+        int p = from, end = to;
+        int i = 0;
+        while (p < end && i < s.qSize) {
+            int rt = terms[p], qt = s.qTerms[i];
+            if (rt == qt) sum += (double) weights[p++] * s.qWeights[i++];
+            else if (rt < qt) p++;
+            else i++;
+        }
+        return sum;
+    }
+
+    static String normalizeCategory(String category) {
+        return category == null ? "" : category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ----- Helpers -----
+
+    /** Leaves the l2-normalized tf-idf vector of text in s.tTerms/s.tWeights (unsorted). */
+    private void textVector(String text, Scratch s) {
+        analyzer.analyze(text, s);
 
-        Map<String, Double> weights = new HashMap<>();
         double sumsq = 0.0;
-        for (Map.Entry<String, Integer> e : tf.entrySet()) {
-            Integer idx = vocab.get(e.getKey());
-            if (idx == null) continue;
-            double w = e.getValue() * idf[idx];
-            weights.put(e.getKey(), w);
-            sumsq += w * w;
-        }
-        double norm = Math.sqrt(Math.max(1e-12, sumsq));
-        for (String t : new ArrayList<>(weights.keySet())) {
-            weights.put(t, weights.get(t) / norm);
-        }
-        return weights;
-    }
-
-    private static List<String> tokenize(String s) {
-        if (s == null) return Collections.emptyList();
-        s = s.toLowerCase(Locale.US);
-        String[] parts = s.split("[^a-z0-9]+");
-        List<String> out = new ArrayList<>();
-        for (String p : parts) if (!p.isEmpty()) out.add(p);
-        return out;
+        for (int i = 0; i < s.tSize; i++) {
+            s.tWeights[i] *= idf[s.tTerms[i]];
+            sumsq += (double) s.tWeights[i] * s.tWeights[i];
+        }
+        float norm = (float) Math.sqrt(Math.max(1e-12, sumsq));
+        for (int i = 0; i < s.tSize; i++) s.tWeights[i] /= norm;
     }
 
-    private static double cosine(Map<String, Double> a, Map<String, Double> b) {
-        if (a.isEmpty() || b.isEmpty()) return 0.0;
-        double dot = 0.0;
-        for (Map.Entry<String, Double> e : a.entrySet()) {
-            Double wb = b.get(e.getKey());
-            if (wb != null) dot += e.getValue() * wb;
+    /** Adds the l2-normalized tf-idf vector of text to the query in s.qTerms/s.qWeights. */
+    private void addToQuery(String text, Scratch s) {
+        textVector(text, s);
+        for (int i = 0; i < s.tSize; i++) {
+            int idx = s.tTerms[i];
+            s.tPos[idx] = 0;
+            int j = s.qPos[idx] - 1;
+            if (j < 0) {
+                j = s.qSize++;
+                s.qPos[idx] = j + 1;
+                s.qTerms[j] = idx;
+                s.qWeights[j] = 0f;
+            }
+            s.qWeights[j] += s.tWeights[i];
         }
-        return dot;
+        s.tSize = 0;
     }
 
-    private static String readAsset(AssetManager am, String name) throws Exception {
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(am.open(name), StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) sb.append(line);
-            return sb.toString();
+    /** Insertion sort of the query by term id, for merge-joins against CSR rows. */
+    private static void sortQuery(Scratch s) {
+        sortByTerm(s.qTerms, s.qWeights, s.qSize);
+    }
+
+    private static void sortText(Scratch s) {
+        sortByTerm(s.tTerms, s.tWeights, s.tSize);
+    }
+
+    private static void sortByTerm(int[] terms, float[] weights, int n) {
+        for (int i = 1; i < n; i++) {
+            int t = terms[i]; float w = weights[i];
+            int j = i - 1;
+            while (j >= 0 && terms[j] > t) { terms[j + 1] = terms[j]; weights[j + 1] = weights[j]; j--; }
+            terms[j + 1] = t; weights[j + 1] = w;
         }
     }
+
+    private static void normalizeQuery(Scratch s) {
+        double sumsq = 0.0;
+        for (int i = 0; i < s.qSize; i++) sumsq += (double) s.qWeights[i] * s.qWeights[i];
+        float norm = (float) Math.sqrt(Math.max(1e-12, sumsq));
+        for (int i = 0; i < s.qSize; i++) s.qWeights[i] /= norm;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
 }
@@ -0,0 +1,481 @@
+package com.example.eventlink;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Local SQLite mirror of the createdEvents collection, so chat, For You and the event screen can
+ * read events in milliseconds and offline.
+ * <p>
+ * Sync is incremental: a single snapshot listener on createdAt &gt; watermark, where the watermark
+ * is the newest createdAt already stored. The listener's first snapshot from the server (not from
+ * Firestore's local cache, which may be partial) is the catch-up since the last run; everything
+ * it delivers is applied as it arrives (added, edited, deleted). A failed listener re-attaches
+ * with backoff. The listener never sees edits or deletions of events older than the watermark,
+ * so after a catch-up the mirror is reconciled with a full read of those events at most once per
+ * {@link #RECONCILE_INTERVAL_MS}. Documents without a createdAt are not mirrored and callers keep a
+ * Firestore fallback for them.
+ * <p>
+ * Writes run on one thread and reads on another (WAL, so a sync batch does not hold up a
+ * lookup); {@link #query} delivers results on the main thread.
+ */
+public final class EventStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "EventStore";
+    private static final String DB_NAME = "events_mirror.db";
+    private static final int DB_VERSION = 1;
+    private static final String COLLECTION = "createdEvents";
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final long RETRY_MIN_MS = 2_000;
+    private static final long RETRY_MAX_MS = 5 * 60_000;
+    static final long RECONCILE_INTERVAL_MS = 24L * 60 * 60 * 1000;
+    private static final String PREFS = "event_store";
+    private static final String KEY_RECONCILED = "reconciled_at";
+
+    private static final String COLUMNS = "id, name, description, domain, date, time, address, "
+            + "latitude, longitude, place_id, image_url, created_at";
+
+    private static EventStore instance;
+
+    private static final ExecutorService WRITER = executor("event-store-writer");
+    private static final ExecutorService READER = executor("event-store-reader");
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final Context appContext;
+    private ListenerRegistration registration;   // main thread only
+    private int failures;                        // main thread only; listener failures since the last catch-up
+    private boolean reconciling;                 // main thread only
+    private final Object namesLock = new Object();
+    private EventNameIndex names;                // built on the first name search, then kept current by apply()
+
+    /** One createdEvents document, as mirrored. */
+    public static final class Event {
+        public final String id, name, description, domain, date, time, address, placeId, imageUrl;
+        public final Double latitude, longitude;
+        public final long createdAtMicros;
+
+        Event(String id, String name, String description, String domain, String date, String time,
+              String address, Double latitude, Double longitude, String placeId, String imageUrl,
+              long createdAtMicros) {
+            this.id = id; this.name = name; this.description = description; this.domain = domain;
+            this.date = date; this.time = time; this.address = address;
+            this.latitude = latitude; this.longitude = longitude;
+            this.placeId = placeId; this.imageUrl = imageUrl;
+            this.createdAtMicros = createdAtMicros;
+        }
+
+        /** Reads the fields CreateEventActivity writes. */
+        static Event of(DocumentSnapshot doc) {
+            Timestamp ts = doc.getTimestamp("createdAt");
+            return new Event(doc.getId(), doc.getString("name"), doc.getString("description"),
+                    doc.getString("domain"), doc.getString("date"), doc.getString("time"),
+                    doc.getString("address"), doc.getDouble("latitude"), doc.getDouble("longitude"),
+                    doc.getString("placeId"), doc.getString("imageUrl"), ts == null ? 0 : toMicros(ts));
+        }
+
+        /** Same mirrored fields as o (false if o is null). */
+        boolean sameAs(Event o) {
+            return o != null && id.equals(o.id) && Objects.equals(name, o.name)
+                    && Objects.equals(description, o.description) && Objects.equals(domain, o.domain)
+                    && Objects.equals(date, o.date) && Objects.equals(time, o.time)
+                    && Objects.equals(address, o.address) && Objects.equals(latitude, o.latitude)
+                    && Objects.equals(longitude, o.longitude) && Objects.equals(placeId, o.placeId)
+                    && Objects.equals(imageUrl, o.imageUrl) && createdAtMicros == o.createdAtMicros;
+        }
+
+        EventModelRefit.EventDoc toEventDoc() {
+            return new EventModelRefit.EventDoc(id, name, description, domain, date, imageUrl);
+        }
+    }
+
+    private EventStore(Context ctx) {
+        super(ctx, DB_NAME, null, DB_VERSION);
+        appContext = ctx;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static synchronized EventStore get(Context ctx) {
+        if (instance == null) instance = new EventStore(ctx.getApplicationContext());
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE events(id TEXT PRIMARY KEY, name TEXT, name_lower TEXT, description TEXT, "
+                + "domain TEXT, date TEXT, time TEXT, address TEXT, latitude REAL, longitude REAL, "
+                + "place_id TEXT, image_url TEXT, created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX events_name ON events(name_lower)");
+        db.execSQL("CREATE INDEX events_created ON events(created_at)");
+        db.execSQL("CREATE INDEX events_latitude ON events(latitude)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // a mirror: drop it and let the next sync download the catalog again
+        db.execSQL("DROP TABLE IF EXISTS events");
+        onCreate(db);
+    }
+
+    // ----- sync -----
+
+    /** Attaches the delta listener if it is not attached yet; safe to call from any screen. */
+    public void startSync() {
+        WRITER.execute(() -> {
+            long watermark;
+            try {
+                watermark = watermarkMicros();
+            } catch (Exception e) {
+                Log.e(TAG, "Mirror unreadable, not syncing", e);
+                return;
+            }
+            MAIN.post(() -> attach(watermark));
+        });
+    }
+
+    private void attach(long watermark) {
+        if (registration != null) return;
+        Log.i(TAG, "Syncing " + COLLECTION + " after createdAt=" + watermark + "us");
+        boolean[] caughtUp = {false};
+        // metadata changes too, or a cache snapshot followed by a server one without new documents
+        // would never report the catch-up
+        registration = FirebaseFirestore.getInstance().collection(COLLECTION)
+                .whereGreaterThan("createdAt", fromMicros(watermark))
+                .orderBy("createdAt", Query.Direction.ASCENDING)
+                .addSnapshotListener(MetadataChanges.INCLUDE, (snap, e) -> {
+                    if (e != null) {
+                        registration = null;
+                        long delay = Math.min(RETRY_MAX_MS, RETRY_MIN_MS << Math.min(failures++, 10));
+                        Log.w(TAG, "Sync listener failed, retrying in " + delay + "ms: " + e.getMessage());
+                        MAIN.postDelayed(this::startSync, delay);   // re-reads the watermark
+                        return;
+                    }
+                    if (snap == null) return;
+                    List<DocumentChange> changes = snap.getDocumentChanges();
+                    boolean catchUp = !caughtUp[0] && !snap.getMetadata().isFromCache();
+                    if (catchUp) {
+                        caughtUp[0] = true;
+                        failures = 0;
+                    }
+                    if (changes.isEmpty() && !catchUp) return;
+                    WRITER.execute(() -> apply(changes, catchUp));
+                    if (catchUp) reconcileIfDue();
+                });
+    }
+
+    /**
+     * Reads every event up to the current watermark from the server and makes the mirror match
+     * it, if the last reconciliation is older than {@link #RECONCILE_INTERVAL_MS}. Main thread.
+     */
+    private void reconcileIfDue() {
+        SharedPreferences prefs = appContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (reconciling || System.currentTimeMillis() - prefs.getLong(KEY_RECONCILED, 0) < RECONCILE_INTERVAL_MS) return;
+        reconciling = true;
+        // queued behind the catch-up, so the watermark covers everything the listener delivered
+        WRITER.execute(() -> {
+            long watermark;
+            try {
+                watermark = watermarkMicros();
+            } catch (Exception e) {
+                Log.e(TAG, "Mirror unreadable, not reconciling", e);
+                MAIN.post(() -> reconciling = false);
+                return;
+            }
+            MAIN.post(() -> FirebaseFirestore.getInstance().collection(COLLECTION)
+                    .whereLessThanOrEqualTo("createdAt", fromMicros(watermark))
+                    .get(Source.SERVER)
+                    .addOnSuccessListener(snap -> WRITER.execute(() -> {
+                        if (reconcile(snap.getDocuments(), watermark)) {
+                            prefs.edit().putLong(KEY_RECONCILED, System.currentTimeMillis()).apply();
+                        }
+                        MAIN.post(() -> reconciling = false);
+                    }))
+                    .addOnFailureListener(e -> {
+                        Log.w(TAG, "Reconciliation failed, retrying next launch: " + e.getMessage());
+                        reconciling = false;
+                    }));
+        });
+    }
+
+    /**
+     * Makes the mirrored events with createdAt &lt;= watermark match docs: changed or missing ones
+     * are rewritten, ones the server no longer has are deleted.
+     */
+    private boolean reconcile(List<DocumentSnapshot> docs, long watermark) {
+        long t0 = System.nanoTime();
+        Map<String, Event> mirrored = new HashMap<>();
+        List<Event> upserts = new ArrayList<>();
+        List<Event> edits = new ArrayList<>();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Event ev : list("SELECT " + COLUMNS + " FROM events WHERE created_at <= ?", String.valueOf(watermark))) {
+                mirrored.put(ev.id, ev);
+            }
+            for (DocumentSnapshot doc : docs) {
+                Event ev = Event.of(doc);
+                Event old = mirrored.remove(ev.id);
+                if (ev.createdAtMicros == 0 || ev.sameAs(old)) continue;
+                db.insertWithOnConflict("events", null, values(ev), SQLiteDatabase.CONFLICT_REPLACE);
+                (old == null ? upserts : edits).add(ev);
+            }
+            for (String id : mirrored.keySet()) db.delete("events", "id = ?", new String[] {id});
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Reconciling " + docs.size() + " events failed", e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+        List<String> removals = new ArrayList<>(mirrored.keySet());
+        Log.i(TAG, "Reconciled " + docs.size() + " events: +" + upserts.size() + " ~" + edits.size()
+                + " -" + removals.size() + " in " + (System.nanoTime() - t0) / 1_000_000 + "ms");
+        applied(upserts, edits, removals);
+        return true;
+    }
+
+    /** Writes one batch of changes in a transaction, then feeds them to the live recommender. */
+    private void apply(List<DocumentChange> changes, boolean catchUp) {
+        long t0 = System.nanoTime();
+        List<Event> upserts = new ArrayList<>();
+        List<Event> edits = new ArrayList<>();
+        List<String> removals = new ArrayList<>();
+        boolean ok = false;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (DocumentChange c : changes) {
+                DocumentSnapshot doc = c.getDocument();
+                if (c.getType() == DocumentChange.Type.REMOVED) {
+                    db.delete("events", "id = ?", new String[] {doc.getId()});
+                    removals.add(doc.getId());
+                    continue;
+                }
+                Event ev = Event.of(doc);
+                if (ev.createdAtMicros == 0) continue;   // server timestamp not resolved yet
+                db.insertWithOnConflict("events", null, values(ev), SQLiteDatabase.CONFLICT_REPLACE);
+                (c.getType() == DocumentChange.Type.MODIFIED ? edits : upserts).add(ev);
+            }
+            db.setTransactionSuccessful();
+            ok = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Applying " + changes.size() + " changes failed", e);
+        } finally {
+            db.endTransaction();
+        }
+        if (ok && (catchUp || !changes.isEmpty())) {
+            Log.i(TAG, (catchUp ? "Catch-up" : "Delta") + ": +" + upserts.size() + " ~" + edits.size()
+                    + " -" + removals.size() + " in " + (System.nanoTime() - t0) / 1_000_000 + "ms");
+        }
+        if (ok) applied(upserts, edits, removals);
+        if (catchUp) EventModelRefit.schedule(appContext);
+    }
+
+    /** Feeds committed mirror changes to the name index and the live recommender. */
+    private void applied(List<Event> upserts, List<Event> edits, List<String> removals) {
+        synchronized (namesLock) {
+            if (names != null) {
+                for (Event ev : upserts) names.put(ev.id, ev.name);
+                for (Event ev : edits) names.put(ev.id, ev.name);
+                for (String id : removals) names.remove(id);
+            }
+        }
+        if (upserts.isEmpty() && edits.isEmpty() && removals.isEmpty()) return;
+        RecommenderHolder.getAsync(appContext).thenAccept(r -> {
+            // events created on this device are indexed by CreateEventActivity already
+            for (Event ev : upserts) if (!r.isIndexed(ev.id)) index(r, ev);
+            for (Event ev : edits) index(r, ev);
+            for (String id : removals) r.removeEvent(id);
+        });
+    }
+
+    private static void index(EventRecommender r, Event ev) {
+        r.addOrUpdateEvent(ev.id, ev.name, ev.description, ev.domain, ev.date, ev.imageUrl);
+    }
+
+    private static ContentValues values(Event ev) {
+        ContentValues v = new ContentValues();
+        v.put("id", ev.id);
+        v.put("name", ev.name);
+        v.put("name_lower", ev.name == null ? null : ev.name.toLowerCase(Locale.ROOT));
+        v.put("description", ev.description);
+        v.put("domain", ev.domain);
+        v.put("date", ev.date);
+        v.put("time", ev.time);
+        v.put("address", ev.address);
+        v.put("latitude", ev.latitude);
+        v.put("longitude", ev.longitude);
+        v.put("place_id", ev.placeId);
+        v.put("image_url", ev.imageUrl);
+        v.put("created_at", ev.createdAtMicros);
+        return v;
+    }
+
+    // ----- queries (worker threads; see query() for main-thread callers) -----
+
+    /**
+     * Runs q on the reader thread and hands its result to onMain on the main thread
+     * (null if the query threw).
+     */
+    public <T> void query(Function<EventStore, T> q, Consumer<T> onMain) {
+        READER.execute(() -> {
+            T result = null;
+            try {
+                result = q.apply(this);
+            } catch (Exception e) {
+                Log.e(TAG, "Query failed", e);
+            }
+            T r = result;
+            MAIN.post(() -> onMain.accept(r));
+        });
+    }
+
+    public Event byId(String id) {
+        return first("SELECT " + COLUMNS + " FROM events WHERE id = ?", id);
+    }
+
+    /** Case-insensitive exact name match; the newest event wins if names repeat. */
+    public Event byName(String name) {
+        if (name == null) return null;
+        return first("SELECT " + COLUMNS + " FROM events WHERE name_lower = ? ORDER BY created_at DESC LIMIT 1",
+                name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Exact (case-insensitive) name match if there is one, else the best fuzzy match from the
+     * trigram index; null if nothing scores {@link EventNameIndex#MIN_SCORE}.
+     */
+    public Event bestNameMatch(String query) {
+        Event exact = byName(query);
+        if (exact != null) return exact;
+        List<EventNameIndex.Match> m = searchNames(query, 1);
+        return m.isEmpty() ? null : byId(m.get(0).id);
+    }
+
+    /** Fuzzy name matches, best first; see {@link EventNameIndex}. */
+    List<EventNameIndex.Match> searchNames(String query, int limit) {
+        return nameIndex().search(query, limit);
+    }
+
+    private EventNameIndex nameIndex() {
+        synchronized (namesLock) {
+            if (names == null) {
+                long t0 = System.nanoTime();
+                EventNameIndex idx = new EventNameIndex();
+                try (Cursor c = getReadableDatabase().rawQuery("SELECT id, name FROM events", null)) {
+                    while (c.moveToNext()) idx.put(c.getString(0), c.getString(1));
+                }
+                names = idx;
+                Log.i(TAG, "Name index: " + idx.size() + " events in " + (System.nanoTime() - t0) / 1_000_000 + "ms");
+            }
+            return names;
+        }
+    }
+
+    /** Every event, by name. */
+    public List<Event> all() {
+        return list("SELECT " + COLUMNS + " FROM events ORDER BY name");
+    }
+
+    /** The newest events first. */
+    public List<Event> recent(int limit) {
+        return list("SELECT " + COLUMNS + " FROM events ORDER BY created_at DESC LIMIT ?", String.valueOf(limit));
+    }
+
+    /**
+     * Events inside the lat/lng box that encloses the km radius around (lat, lng); callers apply
+     * their exact distance cut to this short list.
+     */
+    public List<Event> near(double lat, double lng, double km) {
+        double dLat = km / KM_PER_DEGREE;
+        double cos = Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        double dLng = Math.min(180, km / (KM_PER_DEGREE * cos));
+        return list("SELECT " + COLUMNS + " FROM events WHERE latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?",
+                String.valueOf(lat - dLat), String.valueOf(lat + dLat),
+                String.valueOf(lng - dLng), String.valueOf(lng + dLng));
+    }
+
+    public int count() {
+        try (Cursor c = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM events", null)) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+
+    /** The mirrored catalog as a refit source; each pass streams a fresh cursor. */
+    EventModelRefit.EventSource asEventSource() {
+        return sink -> {
+            try (Cursor c = getReadableDatabase().rawQuery("SELECT " + COLUMNS + " FROM events", null)) {
+                while (c.moveToNext()) sink.accept(read(c).toEventDoc());
+            }
+        };
+    }
+
+    private long watermarkMicros() {
+        try (Cursor c = getReadableDatabase().rawQuery("SELECT MAX(created_at) FROM events", null)) {
+            return c.moveToFirst() && !c.isNull(0) ? c.getLong(0) : 0;
+        }
+    }
+
+    private Event first(String sql, String... args) {
+        try (Cursor c = getReadableDatabase().rawQuery(sql, args)) {
+            return c.moveToFirst() ? read(c) : null;
+        }
+    }
+
+    private List<Event> list(String sql, String... args) {
+        try (Cursor c = getReadableDatabase().rawQuery(sql, args)) {
+            List<Event> out = new ArrayList<>(c.getCount());
+            while (c.moveToNext()) out.add(read(c));
+            return out;
+        }
+    }
+
+    /** Row in COLUMNS order. */
+    private static Event read(Cursor c) {
+        return new Event(c.getString(0), c.getString(1), c.getString(2), c.getString(3), c.getString(4),
+                c.getString(5), c.getString(6), c.isNull(7) ? null : c.getDouble(7),
+                c.isNull(8) ? null : c.getDouble(8), c.getString(9), c.getString(10), c.getLong(11));
+    }
+
+    private static long toMicros(Timestamp ts) {
+        return ts.getSeconds() * 1_000_000L + ts.getNanoseconds() / 1000;
+    }
+
+    private static Timestamp fromMicros(long micros) {
+        return new Timestamp(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1000);
+    }
+
+    private static ExecutorService executor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
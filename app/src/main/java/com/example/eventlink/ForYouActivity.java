@@ -33,6 +33,7 @@ import com.google.firebase.firestore.Query;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 
 public class ForYouActivity extends AppCompatActivity {
 
@@ -42,7 +43,10 @@ public class ForYouActivity extends AppCompatActivity {
     private String userId, userEmail;
     private ImageSlider imageSlider;
     private Button openChatBtn;
-    private ListenerRegistration eventListener;
+    private ListenerRegistration profileObserver;
+    private List<String> sliderInterests;   // interests the slider was last ranked for
+
+    private static final int SLIDER_SIZE = 10;
     private Toolbar toolbar;
     private ActionBarDrawerToggle toggle;
 
@@ -135,7 +139,8 @@ public class ForYouActivity extends AppCompatActivity {
             startActivity(chatIntent);
         });
 
-        refreshUserInfo();
+        // profile comes from the shared listener: cached copy now, live updates after
+        profileObserver = UserProfileStore.get(this).observe(userId, this::showUserInfo);
     }
 
     private void showLogoutDialog() {
@@ -143,6 +148,7 @@ public class ForYouActivity extends AppCompatActivity {
                 .setTitle("Logout")
                 .setMessage("Do you really want to exit?")
                 .setPositiveButton("Yes", (dialog, which) -> {
+                    UserProfileStore.get(this).signedOut();
                     FirebaseAuth.getInstance().signOut();
 
                     Intent intent = new Intent(ForYouActivity.this, MainActivity.class);
@@ -157,129 +163,150 @@ public class ForYouActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        refreshUserInfo();
+        // profile edits arrive through the observer; events created meanwhile show up on return
+        if (sliderInterests != null) loadSliderEvents(sliderInterests);
+        loadNearbyEvents();
     }
 
     // -------------------------------------------------
-    // ✅ FETCH USER INFO
+    // ✅ SHOW USER INFO (every profile snapshot)
     // -------------------------------------------------
-    private void refreshUserInfo() {
-        db.collection("users").document(userId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (!documentSnapshot.exists()) {
-                        Toast.makeText(this, "User not found!", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    View header = navigationView.getHeaderView(0);
-                    TextView navName = header.findViewById(R.id.nav_header_name);
-                    TextView navEmail = header.findViewById(R.id.nav_header_email);
-                    TextView navInterests = header.findViewById(R.id.nav_header_interests);
+    private void showUserInfo(UserProfileStore.UserProfile profile) {
+        if (!profile.exists) {
+            Toast.makeText(this, "User not found!", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-                    String fireName = documentSnapshot.getString("name");
-                    String fireEmail = documentSnapshot.getString("email");
-                    List<String> selectedInterests =
-                            (List<String>) documentSnapshot.get("selectedInterests");
+        View header = navigationView.getHeaderView(0);
+        TextView navName = header.findViewById(R.id.nav_header_name);
+        TextView navEmail = header.findViewById(R.id.nav_header_email);
+        TextView navInterests = header.findViewById(R.id.nav_header_interests);
 
-                    navName.setText(fireName != null ? fireName : "Unknown User");
-                    navEmail.setText(fireEmail != null ? fireEmail : userEmail);
+        List<String> selectedInterests = profile.selectedInterests;
 
-                    if (selectedInterests != null && !selectedInterests.isEmpty()) {
-                        navInterests.setText("Your Interests: " + String.join(", ", selectedInterests));
-                    } else {
-                        navInterests.setText("Your Interests: Not selected");
-                    }
+        navName.setText(profile.name != null ? profile.name : "Unknown User");
+        navEmail.setText(profile.email != null ? profile.email : userEmail);
 
-                    attachLiveEventListener(selectedInterests);
-                    loadNearbyEvents();
+        if (!selectedInterests.isEmpty()) {
+            navInterests.setText("Your Interests: " + String.join(", ", selectedInterests));
+        } else {
+            navInterests.setText("Your Interests: Not selected");
+        }
 
-                })
-                .addOnFailureListener(e ->
-                        Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show()
-                );
+        // re-rank only when the interests change; onResume picks up new events
+        if (!selectedInterests.equals(sliderInterests)) {
+            sliderInterests = selectedInterests;
+            loadSliderEvents(selectedInterests);
+        }
     }
 
     // -------------------------------------------------
     // ✅ EVENT SLIDER
     // -------------------------------------------------
-    private void attachLiveEventListener(List<String> userInterests) {
-
-        imageSlider = findViewById(R.id.imageSlider);
-        if (imageSlider == null) return;
-
-        if (eventListener != null) eventListener.remove();
+    /**
+     * Ranks events for the interests with the recommender (bundled catalog plus live events), on
+     * the mirror's reader thread; click details come from the mirror. Without interests there is
+     * nothing to rank by, so the slider shows the newest events as before.
+     */
+    private void loadSliderEvents(List<String> userInterests) {
+        if (userInterests == null || userInterests.isEmpty()) {
+            EventStore.get(this).query(
+                    st -> st.count() == 0 ? null : slides(st.recent(SLIDER_SIZE)),
+                    slides -> {
+                        if (slides != null) showSlides(userInterests, slides);
+                        else loadRecentEventsFromFirestore(userInterests);
+                    });
+            return;
+        }
+        RecommenderHolder.whenReady(this, r -> {
+            if (r == null || isFinishing()) return;
+            EventStore.get(this).query(st -> {
+                List<Slide> slides = new ArrayList<>();
+                HashSet<String> seen = new HashSet<>();
+                for (EventRecommender.RankedEvent re : r.recommend(userInterests, SLIDER_SIZE)) {
+                    if (re.meta.name == null || !seen.add(re.meta.name)) continue;
+                    EventStore.Event ev = st.byId(re.meta.id);
+                    slides.add(ev != null ? Slide.of(ev) : Slide.of(re.meta));
+                }
+                return slides;
+            }, slides -> showSlides(userInterests, slides));
+        });
+    }
 
-        eventListener = db.collection("createdEvents")
+    private void loadRecentEventsFromFirestore(List<String> userInterests) {
+        db.collection("createdEvents")
                 .orderBy("createdAt", Query.Direction.DESCENDING)
-                .limit(10)
-                .addSnapshotListener((snapshot, e) -> {
-
-                    if (e != null) {
-                        //Toast.makeText(this, "Error loading events", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    List<SlideModel> slides = new ArrayList<>();
-                    List<DocumentSnapshot> filteredDocs = new ArrayList<>();
-                    HashSet<String> seen = new HashSet<>();
-
-                    if (snapshot == null) return;
-
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
-
-                        String name = doc.getString("name");
-                        String domain = doc.getString("domain");
-                        String imageUrl = doc.getString("imageUrl");
-                        String date = doc.getString("date");
+                .limit(SLIDER_SIZE)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<EventStore.Event> recent = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) recent.add(EventStore.Event.of(doc));
+                    showSlides(userInterests, slides(recent));
+                });
+    }
 
-                        if (name == null || seen.contains(name)) continue;
-                        seen.add(name);
+    private static List<Slide> slides(List<EventStore.Event> events) {
+        List<Slide> slides = new ArrayList<>();
+        HashSet<String> seen = new HashSet<>();
+        for (EventStore.Event ev : events) {
+            if (ev.name == null || !seen.add(ev.name)) continue;
+            slides.add(Slide.of(ev));
+        }
+        return slides;
+    }
 
-                        boolean match = true;
-                        if (userInterests != null && !userInterests.isEmpty()) {
-                            match = false;
-                            for (String interest : userInterests) {
-                                if (domain != null &&
-                                        domain.equalsIgnoreCase(interest)) {
-                                    match = true;
-                                    break;
-                                }
-                            }
-                        }
+    private void showSlides(List<String> userInterests, List<Slide> slides) {
+        imageSlider = findViewById(R.id.imageSlider);
+        // a newer ranking was requested meanwhile (interests changed)
+        if (imageSlider == null || slides == null || isFinishing() || !Objects.equals(userInterests, sliderInterests)) return;
+
+        List<SlideModel> models = new ArrayList<>();
+        for (Slide sl : slides) {
+            models.add(new SlideModel(
+                    sl.imageUrl != null && !sl.imageUrl.isEmpty() ? sl.imageUrl :
+                            "https://placehold.co/1000x600?text=" + sl.name,
+                    sl.name + " • " + sl.domain + " • " + sl.date,
+                    ScaleTypes.CENTER_CROP
+            ));
+        }
+        imageSlider.setImageList(models, ScaleTypes.CENTER_CROP);
 
-                        if (!match) continue;
+        imageSlider.setItemClickListener(position -> {
+            if (position < 0 || position >= slides.size()) return;
 
-                        slides.add(new SlideModel(
-                                imageUrl != null ? imageUrl :
-                                        "https://placehold.co/1000x600?text=" + name,
-                                name + " • " + domain + " • " + date,
-                                ScaleTypes.CENTER_CROP
-                        ));
+            Slide sl = slides.get(position);
 
-                        filteredDocs.add(doc);
-                    }
+            Intent intent = new Intent(ForYouActivity.this, EventDescActivity.class);
+            intent.putExtra("eventId", sl.id);
+            intent.putExtra("eventName", sl.name);
+            intent.putExtra("eventCategory", sl.domain);
+            intent.putExtra("eventDate", sl.date);
+            intent.putExtra("eventImage", sl.imageUrl);
+            intent.putExtra("eventDescription", sl.description);
+            intent.putExtra("eventLocation", sl.address);
+            intent.putExtra("userId", userId);
+            intent.putExtra("userEmail", userEmail);
 
-                    imageSlider.setImageList(slides, ScaleTypes.CENTER_CROP);
+            startActivity(intent);
+        });
+    }
 
-                    imageSlider.setItemClickListener(position -> {
-                        if (position < 0 || position >= filteredDocs.size()) return;
+    /** One slider entry; bundled catalog events have no description or address. */
+    private static final class Slide {
+        final String id, name, domain, date, imageUrl, description, address;
 
-                        DocumentSnapshot doc = filteredDocs.get(position);
+        Slide(String id, String name, String domain, String date, String imageUrl, String description, String address) {
+            this.id = id; this.name = name; this.domain = domain; this.date = date;
+            this.imageUrl = imageUrl; this.description = description; this.address = address;
+        }
 
-                        Intent intent = new Intent(ForYouActivity.this, EventDescActivity.class);
-                        intent.putExtra("eventId", doc.getId());
-                        intent.putExtra("eventName", doc.getString("name"));
-                        intent.putExtra("eventCategory", doc.getString("domain"));
-                        intent.putExtra("eventDate", doc.getString("date"));
-                        intent.putExtra("eventImage", doc.getString("imageUrl"));
-                        intent.putExtra("eventDescription", doc.getString("description"));
-                        intent.putExtra("eventLocation", doc.getString("address"));
-                        intent.putExtra("userId", userId);
-                        intent.putExtra("userEmail", userEmail);
+        static Slide of(EventStore.Event ev) {
+            return new Slide(ev.id, ev.name, ev.domain, ev.date, ev.imageUrl, ev.description, ev.address);
+        }
 
-                        startActivity(intent);
-                    });
-                });
+        static Slide of(EventRecommender.EventMeta m) {
+            return new Slide(m.id, m.name, m.category, m.date, m.imageUrl, null, null);
+        }
     }
 
     // -------------------------------------------------
@@ -298,45 +325,58 @@ public class ForYouActivity extends AppCompatActivity {
                     double userLat = location.getLatitude();
                     double userLng = location.getLongitude();
 
-                    db.collection("createdEvents")
-                            .get()
-                            .addOnSuccessListener(snapshot -> {
+                    // local mirror: bounding-box query, then the exact distance cut;
+                    // Firestore only while the mirror has nothing yet (first run before its catch-up)
+                    EventStore.get(this).query(
+                            st -> st.count() == 0 ? null : st.near(userLat, userLng, 6.0),
+                            candidates -> {
+                                if (candidates != null) showNearbyEvents(userLat, userLng, candidates);
+                                else loadNearbyEventsFromFirestore(userLat, userLng);
+                            });
 
-                                List<DocumentSnapshot> nearbyEvents = new ArrayList<>();
-                                List<Double> distancesList = new ArrayList<>();
+                });
+    }
 
-                                for (DocumentSnapshot doc : snapshot.getDocuments()) {
+    private void loadNearbyEventsFromFirestore(double userLat, double userLng) {
+        db.collection("createdEvents")
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<EventStore.Event> all = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) all.add(EventStore.Event.of(doc));
+                    showNearbyEvents(userLat, userLng, all);
+                })
+                .addOnFailureListener(e ->
+                        Toast.makeText(this, "Nearby events unavailable right now", Toast.LENGTH_SHORT).show());
+    }
 
-                                    Double evLat = doc.getDouble("latitude");
-                                    Double evLng = doc.getDouble("longitude");
+    private void showNearbyEvents(double userLat, double userLng, List<EventStore.Event> candidates) {
 
-                                    Log.d("NEARBY_DEBUG",
-                                            "Event: " + doc.getString("name") +
-                                                    " | lat=" + evLat +
-                                                    " | lng=" + evLng);
+        List<EventStore.Event> nearbyEvents = new ArrayList<>();
+        List<Double> distancesList = new ArrayList<>();
 
-                                    if (evLat == null || evLng == null) continue;
+        for (EventStore.Event ev : candidates) {
 
-                                    double distance = distanceKm(userLat, userLng, evLat, evLng);
+            if (ev.latitude == null || ev.longitude == null) continue;
 
-                                    if (distance <= 6.0) {
-                                        nearbyEvents.add(doc);
-                                        distancesList.add(distance);
-                                    }
-                                }
+            double distance = distanceKm(userLat, userLng, ev.latitude, ev.longitude);
 
-                                EventAdapter adapter = new EventAdapter(
-                                        ForYouActivity.this,
-                                        nearbyEvents,
-                                        distancesList,
-                                        userId,
-                                        userEmail
-                                );
+            if (distance <= 6.0) {
+                nearbyEvents.add(ev);
+                distancesList.add(distance);
+            }
+        }
 
-                                recyclerNearbyEvents.setAdapter(adapter);
-                            });
+        Log.d("NEARBY_DEBUG", "candidates=" + candidates.size() + " | nearby=" + nearbyEvents.size());
 
-                });
+        EventAdapter adapter = new EventAdapter(
+                ForYouActivity.this,
+                nearbyEvents,
+                distancesList,
+                userId,
+                userEmail
+        );
+
+        recyclerNearbyEvents.setAdapter(adapter);
     }
 
     // ✅ Haversine distance
@@ -364,6 +404,6 @@ public class ForYouActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (eventListener != null) eventListener.remove();
+        if (profileObserver != null) profileObserver.remove();
     }
 }
@@ -1,22 +1,22 @@
 package com.example.eventlink;
 
 import android.content.Context;
-import android.content.res.AssetManager;
 import android.text.TextUtils;
-import android.util.Log;
-import org.json.JSONObject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 public class IntentEvaluator {
 
-    private static final String TAG = "IntentEvaluator";
+    private static final int CACHE_SIZE = 256;
+
     private final IntentLocalClassifier clf;
-    private final Map<String, Double> perClassThresholds = new HashMap<>();
-    private final double defaultThreshold;
+    private final double threshold;
+
+    // Predictions per normalized utterance; the classifier and threshold never change
+    private final PredictionCache cache = new PredictionCache(CACHE_SIZE);
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
 
     // Only keep rule-based detection for date/time questions
     private static final Pattern DATE_TIME = Pattern.compile(
@@ -24,42 +24,84 @@ public class IntentEvaluator {
             Pattern.CASE_INSENSITIVE
     );
 
-    public IntentEvaluator(Context ctx, String modelAsset, String thresholdsAsset, double defaultThreshold) throws Exception {
-        this.clf = new IntentLocalClassifier(ctx, modelAsset);
-        this.defaultThreshold = defaultThreshold;
+    /** Uses the shared classifier for the default model asset; other assets get their own instance. */
+    public IntentEvaluator(Context ctx, String modelAsset, double threshold) throws Exception {
+        this(ClassifierHolder.MODEL_ASSET.equals(modelAsset)
+                ? ClassifierHolder.get(ctx)
+                : new IntentLocalClassifier(ctx, modelAsset), threshold);
+    }
 
-        if (thresholdsAsset != null) {
-            try {
-                String json = readAsset(ctx.getAssets(), thresholdsAsset);
-                JSONObject obj = new JSONObject(json);
-                for (String label : clf.classes()) {
-                    if (obj.has(label)) perClassThresholds.put(label, obj.getDouble(label));
-                }
-                Log.i(TAG, "Loaded thresholds for " + perClassThresholds.size() + " classes.");
-            } catch (Exception e) {
-                Log.w(TAG, "Thresholds not loaded (" + e.getMessage() + ")");
-            }
-        }
+    /** Below threshold a prediction is answered out_of_scope, for every class. */
+    public IntentEvaluator(IntentLocalClassifier clf, double threshold) {
+        this.clf = clf;
+        this.threshold = threshold;
     }
 
+    public long cacheHits() { return cacheHits.get(); }
+
+    public long cacheMisses() { return cacheMisses.get(); }
+
+    public double cacheHitRate() {
+        long h = cacheHits.get(), total = h + cacheMisses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Utterances that normalize to the same text (case, spacing, punctuation) share one cached
+     * result. The date/time rule runs on the normalized text too, so the result depends on
+     * nothing else; the classifier sees the same features either way.
+     */
     public IntentLocalClassifier.Prediction evaluate(String text) {
         if (TextUtils.isEmpty(text))
             return new IntentLocalClassifier.Prediction("out_of_scope", 1.0, "", 0.0, new double[0]);
 
-        // --- Date/Time override only ---
-        if (DATE_TIME.matcher(text).find())
-            return new IntentLocalClassifier.Prediction("event_date_time", 0.98, "out_of_scope", 0.02, new double[0]);
+        String normalized = IntentLocalClassifier.normalize(text);
+        IntentLocalClassifier.Prediction cached = cache.get(normalized);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        cacheMisses.incrementAndGet();
+
+        IntentLocalClassifier.Prediction p = DATE_TIME.matcher(normalized).find()
+                ? dateTime()
+                : clf.predict(normalized, threshold, null);
+        cache.put(normalized, p);
+        return p;
+    }
+
+    /**
+     * What {@link #evaluate} would answer for text, without touching the cache or any counter; for
+     * drafts that may never be sent.
+     */
+    public IntentLocalClassifier.Prediction preview(String text) {
+        if (TextUtils.isEmpty(text))
+            return new IntentLocalClassifier.Prediction("out_of_scope", 1.0, "", 0.0, new double[0]);
+        String normalized = IntentLocalClassifier.normalize(text);
+        if (DATE_TIME.matcher(normalized).find()) return dateTime();
+        return clf.preview(normalized, threshold, null);
+    }
 
-        // --- Everything else handled by the trained model ---
-        return clf.predict(text, defaultThreshold, perClassThresholds);
+    /** Date/time override; the model has no class for it. */
+    private static IntentLocalClassifier.Prediction dateTime() {
+        return new IntentLocalClassifier.Prediction("event_date_time", 0.98, "out_of_scope", 0.02, new double[0]);
     }
 
-    private static String readAsset(AssetManager am, String name) throws Exception {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(am.open(name), StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) sb.append(line);
-            return sb.toString();
+    /** Bounded LRU, safe for concurrent evaluate calls. */
+    private static final class PredictionCache {
+        private final LinkedHashMap<String, IntentLocalClassifier.Prediction> map;
+
+        PredictionCache(int capacity) {
+            map = new LinkedHashMap<String, IntentLocalClassifier.Prediction>(capacity * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, IntentLocalClassifier.Prediction> eldest) {
+                    return size() > capacity;
+                }
+            };
         }
+
+        synchronized IntentLocalClassifier.Prediction get(String key) { return map.get(key); }
+
+        synchronized void put(String key, IntentLocalClassifier.Prediction value) { map.put(key, value); }
     }
 }
@@ -8,9 +8,13 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TF-IDF + multinomial logistic regression (softmax) inference.
@@ -38,13 +42,21 @@ public class IntentLocalClassifier {
     }
 
     private final String[] classes;           // [nClasses]
-    private final Map<String,Integer> vocab;  // token -> index
+    private final TermTable vocab;            // token -> index
     private final double[] idf;               // [nFeatures], default 1.0
-    private final double[][] coef;            // [nClasses][nFeatures]
+    private final double[] coefT;             // [nFeatures * nClasses], feature-major: row f = weights of feature f; null when quantized
+    private final byte[] coefQ;               // int8 form of coefT, null unless quantized
+    private final double[] coefScale;         // [nClasses] coef = coefQ * coefScale[class]
     private final double[] intercept;         // [nClasses], default 0.0
     private final String analyzer;            // "char_wb" or "word"
     private final int nMin, nMax;
     private final int nClasses, nFeatures;
+    private final ThreadLocal<Scratch> scratch;
+    private final long[] vocabBloom;          // Bloom filter (2 probes) over the vocab terms' String hashes
+    private final AtomicLong gated;           // thresholded predictions answered by the off-topic gate
+    private final int oosIdx;                 // index of out_of_scope, -1 if the model has none (no gate)
+
+    private static final int BATCH_BLOCK = 256;   // utterances per fork/join leaf in predictBatch
 
     // ------------------- Constructor -------------------
 
@@ -52,8 +64,71 @@ public class IntentLocalClassifier {
         this(ctx, "intent_model_android.json");
     }
 
+    /** Loads the packaged binary form of assetName (.json -> .bin) if present, else parses the JSON. */
     public IntentLocalClassifier(Context ctx, String assetName) throws Exception {
-        String raw = readAsset(ctx.getAssets(), assetName);
+        this(load(ctx.getAssets(), assetName));
+    }
+
+    IntentLocalClassifier(IntentModelFormat.Model m) {
+        classes = m.classes;
+        nClasses = classes.length;
+        vocab = m.vocab;
+        nFeatures = vocab.size();
+        idf = m.idf;
+        coefT = m.coefT;
+        coefQ = null;
+        coefScale = null;
+        intercept = m.intercept;
+        analyzer = m.analyzer;
+        nMin = m.nMin;
+        nMax = m.nMax;
+        scratch = ThreadLocal.withInitial(() -> new Scratch(nFeatures, nClasses));
+        vocabBloom = buildBloom(vocab);
+        gated = new AtomicLong();
+        oosIdx = indexOfClass("out_of_scope");
+
+        Log.i(TAG, "Loaded model: classes=" + nClasses + ", features=" + nFeatures +
+                ", analyzer=" + analyzer + ", ngram=(" + nMin + "," + nMax + ")");
+    }
+
+    /** Same vectorizer as src, with int8 weights. */
+    private IntentLocalClassifier(IntentLocalClassifier src, byte[] coefQ, double[] coefScale) {
+        classes = src.classes;
+        nClasses = src.nClasses;
+        vocab = src.vocab;
+        nFeatures = src.nFeatures;
+        idf = src.idf;
+        coefT = null;
+        this.coefQ = coefQ;
+        this.coefScale = coefScale;
+        intercept = src.intercept;
+        analyzer = src.analyzer;
+        nMin = src.nMin;
+        nMax = src.nMax;
+        scratch = ThreadLocal.withInitial(() -> new Scratch(nFeatures, nClasses));
+        vocabBloom = src.vocabBloom;
+        gated = new AtomicLong();
+        oosIdx = src.oosIdx;
+    }
+
+    private static IntentModelFormat.Model load(AssetManager am, String assetName) throws Exception {
+        long t0 = System.nanoTime();
+        String binName = assetName.endsWith(".json")
+                ? assetName.substring(0, assetName.length() - 5) + ".bin"
+                : IntentModelFormat.BINARY_ASSET;
+        try {
+            IntentModelFormat.Model m = IntentModelFormat.read(EventModelFormat.mapAsset(am, binName));
+            Log.i(TAG, "Binary model " + binName + " read in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+            return m;
+        } catch (IOException | RuntimeException e) {
+            Log.i(TAG, "No usable " + binName + " (" + e.getMessage() + "), parsing " + assetName);
+        }
+        IntentModelFormat.Model m = fromJson(readAsset(am, assetName));
+        Log.i(TAG, "JSON model " + assetName + " parsed in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        return m;
+    }
+
+    static IntentModelFormat.Model fromJson(String raw) throws Exception {
         JSONObject root = new JSONObject(raw);
 
         // Allow nested or flat
@@ -76,14 +151,18 @@ public class IntentLocalClassifier {
         if (jClasses == null || jClasses.length() == 0) {
             throw new IllegalArgumentException("Model JSON missing 'classes' array.");
         }
-        classes = new String[jClasses.length()];
+        String[] classes = new String[jClasses.length()];
         for (int i = 0; i < jClasses.length(); i++) classes[i] = jClasses.getString(i);
-        nClasses = classes.length;
+        int nClasses = classes.length;
 
         // --- vocabulary ---
         VocabResult vr = loadVocabulary(vecNode, root);
-        this.vocab = vr.vocab;
-        this.nFeatures = vr.nFeatures;
+        int nFeatures = vr.nFeatures;
+        String[] terms = new String[nFeatures];
+        for (Map.Entry<String, Integer> e : vr.vocab.entrySet()) {
+            if (e.getValue() >= 0 && e.getValue() < nFeatures) terms[e.getValue()] = e.getKey();
+        }
+        TermTable vocab = new TermTable(terms);
         Log.i(TAG, "Vocab loaded: size=" + nFeatures + " (shape=" + vr.shape + ", source=" + vr.source + ")");
 
         // --- idf (optional) ---
@@ -95,16 +174,15 @@ public class IntentLocalClassifier {
         if (jIdf != null && jIdf.length() == nFeatures) {
             for (int i = 0; i < nFeatures; i++) idfTmp[i] = jIdf.getDouble(i);
         }
-        idf = idfTmp;
 
         // --- analyzer & ngram ---
         String ana = firstNonNullString(
                 vecNode.optString("analyzer", null),
                 root.optString("analyzer", null));
-        analyzer = (ana == null || ana.isEmpty()) ? "char_wb" : ana;
+        String analyzer = (ana == null || ana.isEmpty()) ? "char_wb" : ana;
 
-        nMin = vecNode.has("ngram_min") ? vecNode.optInt("ngram_min", 3) : root.optInt("ngram_min", 3);
-        nMax = vecNode.has("ngram_max") ? vecNode.optInt("ngram_max", 5) : root.optInt("ngram_max", 5);
+        int nMin = vecNode.has("ngram_min") ? vecNode.optInt("ngram_min", 3) : root.optInt("ngram_min", 3);
+        int nMax = vecNode.has("ngram_max") ? vecNode.optInt("ngram_max", 5) : root.optInt("ngram_max", 5);
 
         // --- coef ---
         JSONArray jCoef = firstNonNullArray(
@@ -114,13 +192,14 @@ public class IntentLocalClassifier {
         if (jCoef == null || jCoef.length() != nClasses) {
             throw new IllegalArgumentException("Model JSON 'coef' must be [nClasses][nFeatures].");
         }
-        coef = new double[nClasses][nFeatures];
+        // stored transposed so a prediction only reads the rows of the features it activates
+        double[] coefT = new double[nFeatures * nClasses];
         for (int r = 0; r < nClasses; r++) {
             JSONArray row = jCoef.getJSONArray(r);
             if (row.length() != nFeatures) {
                 throw new IllegalArgumentException("coef row " + r + " length " + row.length() + " != nFeatures " + nFeatures);
             }
-            for (int c = 0; c < nFeatures; c++) coef[r][c] = row.getDouble(c);
+            for (int c = 0; c < nFeatures; c++) coefT[c * nClasses + r] = row.getDouble(c);
         }
 
         // --- intercept (optional)---
@@ -128,15 +207,14 @@ public class IntentLocalClassifier {
                 clfNode.optJSONArray("intercept"),
                 root.optJSONArray("intercept"),
                 clfNode.optJSONArray("bias"));
-        intercept = new double[nClasses];
+        double[] intercept = new double[nClasses];
         if (jInt != null && jInt.length() == nClasses) {
             for (int i = 0; i < nClasses; i++) intercept[i] = jInt.getDouble(i);
         } else {
             Arrays.fill(intercept, 0.0);
         }
 
-        Log.i(TAG, "Loaded model: classes=" + nClasses + ", features=" + nFeatures +
-                ", analyzer=" + analyzer + ", ngram=(" + nMin + "," + nMax + ")");
+        return new IntentModelFormat.Model(classes, vocab, idfTmp, coefT, intercept, analyzer, nMin, nMax);
     }
 
     // ---------- robust vocabulary loader ----------
@@ -151,7 +229,7 @@ public class IntentLocalClassifier {
         }
     }
 
-    private VocabResult loadVocabulary(JSONObject vecNode, JSONObject root) throws Exception {
+    private static VocabResult loadVocabulary(JSONObject vecNode, JSONObject root) throws Exception {
         // Try multiple nodes/keys
         Object voc = firstNonNullObject(
                 vecNode.opt("vocab"),
@@ -272,24 +350,78 @@ public class IntentLocalClassifier {
     // --------- Public API ---------
 
     public Prediction predict(String text) {
-        double[] x = vectorize(text == null ? "" : text);
-        double[] logits = matVec(coef, x, intercept);
-        double[] probs = softmax(logits);
+        Scratch x = scratch.get();
+        vectorize(text == null ? "" : text, x);
+        return toPrediction(softmax(sparseMatVec(x), 0));
+    }
 
-        int i1 = 0, i2 = (probs.length > 1 ? 1 : 0);
-        for (int i = 0; i < probs.length; i++) {
-            if (probs[i] > probs[i1]) { i2 = i1; i1 = i; }
-            else if (i != i1 && probs[i] > probs[i2]) { i2 = i; }
+    /**
+     * Thresholded prediction. Text whose n-grams barely appear in the vocab (see
+     * {@link #MIN_VOCAB_COVERAGE}) is answered out_of_scope right after the scan, without the
+     * matVec; {@link #checkGate} checks on a labelled corpus that this never overrides an in-scope
+     * prediction (IntentLocalClassifierTest runs it over the parity utterances).
+     */
+    public Prediction predict(String text, double defaultThreshold, Map<String, Double> perClassThr) {
+        return predict(text, defaultThreshold, perClassThr, true);
+    }
+
+    /** {@link #predict(String, double, Map)} that leaves {@link #gatedCount()} alone, for speculative callers. */
+    Prediction preview(String text, double defaultThreshold, Map<String, Double> perClassThr) {
+        return predict(text, defaultThreshold, perClassThr, false);
+    }
+
+    private Prediction predict(String text, double defaultThreshold, Map<String, Double> perClassThr, boolean count) {
+        Scratch x = scratch.get();
+        scan(text == null ? "" : text, x);
+        if (offTopic(x)) {
+            discard(x);
+            if (count) gated.incrementAndGet();
+            return offTopicPrediction();
         }
-        return new Prediction(classes[i1], probs[i1], classes[i2], probs[i2], probs);
+        finish(x);
+        return applyThreshold(toPrediction(softmax(sparseMatVec(x), 0)), defaultThreshold, perClassThr);
     }
 
-    public Prediction predict(String text, double defaultThreshold, Map<String, Double> perClassThr) {
-        Prediction p = predict(text);
+    /**
+     * {@link #predict(String)} for every text, with identical results. Texts are vectorized and
+     * scored a block at a time, blocks spread over the common fork/join pool; meant for offline
+     * replays of logged utterances, not the chat path.
+     */
+    public List<Prediction> predictBatch(List<String> texts) {
+        return predictBatch(texts, null);
+    }
+
+    /**
+     * {@link #predict(String, double, Map)} for every text. The off-topic gate runs in each block
+     * right after the scan, and gated texts skip the vector and the matVec.
+     */
+    public List<Prediction> predictBatch(List<String> texts, double defaultThreshold, Map<String, Double> perClassThr) {
+        return predictBatch(texts, new Thresholds(defaultThreshold, perClassThr));
+    }
+
+    private List<Prediction> predictBatch(List<String> texts, Thresholds thr) {
+        List<String> in = texts instanceof RandomAccess ? texts : new ArrayList<>(texts);
+        Prediction[] out = new Prediction[in.size()];
+        if (out.length <= BATCH_BLOCK) predictBlock(in, 0, out.length, out, thr);
+        else ForkJoinPool.commonPool().invoke(new BatchTask(in, 0, out.length, out, thr));
+        return Arrays.asList(out);
+    }
+
+    /** Arguments of a thresholded prediction; null where a batch is ungated. */
+    private static final class Thresholds {
+        final double defaultThreshold;
+        final Map<String, Double> perClass;
+
+        Thresholds(double defaultThreshold, Map<String, Double> perClass) {
+            this.defaultThreshold = defaultThreshold;
+            this.perClass = perClass;
+        }
+    }
+
+    private Prediction applyThreshold(Prediction p, double defaultThreshold, Map<String, Double> perClassThr) {
         Double thr = perClassThr == null ? null : perClassThr.get(p.top1);
         double useThr = (thr != null) ? thr : defaultThreshold;
 
-        int oosIdx = indexOfClass("out_of_scope");
         if (oosIdx >= 0 && p.top1Prob < useThr) {
             double[] forced = new double[p.probs.length];
             Arrays.fill(forced, 0.0);
@@ -300,96 +432,489 @@ public class IntentLocalClassifier {
         return p;
     }
 
+    private Prediction toPrediction(double[] probs) {
+        int i1 = 0, i2 = (probs.length > 1 ? 1 : 0);
+        for (int i = 0; i < probs.length; i++) {
+            if (probs[i] > probs[i1]) { i2 = i1; i1 = i; }
+            else if (i != i1 && probs[i] > probs[i2]) { i2 = i; }
+        }
+        return new Prediction(classes[i1], probs[i1], classes[i2], probs[i2], probs);
+    }
+
     public String[] classes() { return Arrays.copyOf(classes, classes.length); }
 
-    // --------- Vectorizer ---------
+    public boolean isQuantized() { return coefQ != null; }
 
-    private double[] vectorize(String text) {
-        Map<Integer, Double> counts = new HashMap<>();
-        if ("word".equalsIgnoreCase(analyzer)) {
-            List<String> words = simpleWordTokenize(text);
-            for (String w : words) {
-                List<String> ngrams = charNgrams(w, nMin, nMax);
-                for (String ng : ngrams) bump(counts, ng);
-            }
-        } else { // char_wb default
-            List<String> words = simpleWordTokenize(text);
-            for (String w : words) {
-                String padded = " " + w + " ";
-                List<String> ngrams = charNgrams(padded, nMin, nMax);
-                for (String ng : ngrams) bump(counts, ng);
-            }
+    /** Approximate resident size of the model arrays in bytes. */
+    public long footprintBytes() {
+        long bytes = vocab.footprintBytes() + 8L * (idf.length + intercept.length);
+        if (coefT != null) bytes += 8L * coefT.length;
+        else bytes += coefQ.length + 8L * coefScale.length;
+        return bytes;
+    }
+
+    // --------- Quantization ---------
+
+    /**
+     * Copy of this model with int8 weights, one symmetric scale per class (max |coef| / 127).
+     * Weights stay dense: almost none of them round to zero, so a pruned sparse layout would not
+     * be smaller. Check the result with {@link #compare} before serving it.
+     */
+    public IntentLocalClassifier quantized() {
+        if (coefQ != null) return this;
+        double[] scale = new double[nClasses];
+        for (int f = 0; f < nFeatures; f++) {
+            for (int c = 0; c < nClasses; c++) scale[c] = Math.max(scale[c], Math.abs(coefT[f * nClasses + c]));
         }
+        for (int c = 0; c < nClasses; c++) scale[c] = scale[c] > 0 ? scale[c] / 127.0 : 1.0;
+        byte[] q = new byte[coefT.length];
+        for (int i = 0; i < q.length; i++) q[i] = (byte) Math.round(coefT[i] / scale[i % nClasses]);
+        return new IntentLocalClassifier(this, q, scale);
+    }
 
-        double[] x = new double[nFeatures];
-        for (Map.Entry<Integer, Double> e : counts.entrySet()) {
-            int idx = e.getKey();
-            if (idx >= 0 && idx < nFeatures) {
-                double tf = e.getValue();
-                x[idx] = tf * idf[idx];
+    /** Agreement of a candidate model (e.g. quantized) with a reference over a set of utterances. */
+    public static final class ParityReport {
+        public final int n;
+        public final int top1Agree;
+        public final double maxProbDrift;   // largest |p_ref - p_candidate| over all classes
+
+        ParityReport(int n, int top1Agree, double maxProbDrift) {
+            this.n = n; this.top1Agree = top1Agree; this.maxProbDrift = maxProbDrift;
+        }
+
+        public double top1Agreement() { return n == 0 ? 1.0 : (double) top1Agree / n; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "top1 agreement %d/%d (%.2f%%), max prob drift %.4f",
+                    top1Agree, n, 100.0 * top1Agreement(), maxProbDrift);
+        }
+    }
+
+    public static ParityReport compare(IntentLocalClassifier reference, IntentLocalClassifier candidate,
+                                       Collection<String> utterances) {
+        int agree = 0;
+        double drift = 0.0;
+        for (String u : utterances) {
+            Prediction a = reference.predict(u), b = candidate.predict(u);
+            if (a.top1.equals(b.top1)) agree++;
+            for (int i = 0; i < a.probs.length; i++) drift = Math.max(drift, Math.abs(a.probs[i] - b.probs[i]));
+        }
+        return new ParityReport(utterances.size(), agree, drift);
+    }
+
+    /** One utterance per line; blank lines and lines starting with # are skipped. */
+    public static List<String> readUtterances(Context ctx, String assetName) throws Exception {
+        List<String> out = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(ctx.getAssets().open(assetName), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) out.add(line);
             }
         }
+        return out;
+    }
+
+    // --------- Off-topic gate ---------
+
+    /**
+     * Below this share of n-grams found in the vocab, a thresholded prediction is out_of_scope
+     * outright. The lowest in-scope parity utterance ("thanks") sits at 0.13; mostly-unknown text
+     * with one known word ("xkrzrkmn hi kozpej") can fall under it although the model would say
+     * general_greeting.
+     */
+    static final double MIN_VOCAB_COVERAGE = 0.1;
+
+    private static long[] buildBloom(TermTable vocab) {
+        int bits = Integer.highestOneBit(Math.max(1024, vocab.size() * 8) - 1) << 1;
+        long[] bloom = new long[bits / 64];
+        for (int id = 0; id < vocab.size(); id++) {
+            String t = vocab.term(id);
+            if (t == null || t.isEmpty()) continue;
+            int h = t.hashCode();
+            int b1 = bloomBit1(h, bits), b2 = bloomBit2(h, bits);
+            bloom[b1 >>> 6] |= 1L << b1;
+            bloom[b2 >>> 6] |= 1L << b2;
+        }
+        return bloom;
+    }
+
+    private static int bloomBit1(int h, int bits) { return h & (bits - 1); }
+
+    private static int bloomBit2(int h, int bits) { return ((h * 0x9E3779B9) >>> 16) & (bits - 1); }
+
+    private boolean inBloom(int h) {
+        int bits = vocabBloom.length * 64;
+        int b1 = bloomBit1(h, bits), b2 = bloomBit2(h, bits);
+        return (vocabBloom[b1 >>> 6] & (1L << b1)) != 0 && (vocabBloom[b2 >>> 6] & (1L << b2)) != 0;
+    }
+
+    /** Share of text's n-grams that (probably) appear in the vocab; 0 for text without any n-gram. */
+    double vocabCoverage(String text) {
+        Scratch x = scratch.get();
+        scan(text == null ? "" : text, x);
+        discard(x);
+        return coverage(x);
+    }
+
+    private static double coverage(Scratch x) {
+        return x.grams == 0 ? 0.0 : (double) x.bloomHits / x.grams;
+    }
+
+    /** True when the last scan hardly touched the vocab, so the model could only say out_of_scope. */
+    private boolean offTopic(Scratch x) {
+        return oosIdx >= 0 && coverage(x) < MIN_VOCAB_COVERAGE;
+    }
+
+    private Prediction offTopicPrediction() {
+        double[] forced = new double[nClasses];
+        forced[oosIdx] = 1.0;
+        return new Prediction("out_of_scope", 1.0, "", 0.0, forced);
+    }
+
+    public long gatedCount() { return gated.get(); }
+
+    /** What the off-topic gate did to a set of utterances at the given thresholds. */
+    public static final class GateReport {
+        public final int n;
+        public final int gated;
+        public final int overridden;   // gated although the full model predicts an in-scope class
+
+        GateReport(int n, int gated, int overridden) {
+            this.n = n; this.gated = gated; this.overridden = overridden;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "gated %d/%d (%.1f%%), in-scope predictions overridden %d",
+                    gated, n, n == 0 ? 0.0 : 100.0 * gated / n, overridden);
+        }
+    }
+
+    /**
+     * Offline check of the gate against the ungated model on a labelled corpus (e.g. the parity
+     * utterances or logged chats): overridden must stay 0.
+     */
+    public GateReport checkGate(Collection<String> utterances, double defaultThreshold, Map<String, Double> perClassThr) {
+        int nGated = 0, overridden = 0;
+        for (String u : utterances) {
+            Scratch x = scratch.get();
+            scan(u == null ? "" : u, x);
+            discard(x);
+            if (!offTopic(x)) continue;
+            nGated++;
+            Prediction full = applyThreshold(predict(u), defaultThreshold, perClassThr);
+            if (!"out_of_scope".equals(full.top1)) overridden++;
+        }
+        return new GateReport(utterances.size(), nGated, overridden);
+    }
 
-        // l2 normalize
+    // --------- Vectorizer ---------
+
+    /**
+     * Per-thread buffers: the cleaned text and the active features of the last utterance
+     * (ascending ids with their tf-idf values), so predict allocates only its result.
+     */
+    private static final class Scratch {
+        char[] text = new char[256];
+        final int[] pos;        // feature id -> tf slot + 1, 0 = inactive
+        final int[] ids;        // active feature ids
+        final int[] tf;         // [n] counts, parallel to ids until sorted
+        final double[] val;     // [n] l2-normalized tf-idf, parallel to ids after sorting
+        final double[] logits;  // [nClasses]
+        int n;
+        int grams, bloomHits;   // n-grams scanned, and how many passed the vocab Bloom filter
+
+        Scratch(int nFeatures, int nClasses) {
+            pos = new int[nFeatures];
+            ids = new int[nFeatures];
+            tf = new int[nFeatures];
+            val = new double[nFeatures];
+            logits = new double[nClasses];
+        }
+    }
+
+    /**
+     * Same features as lowercasing, replacing anything but letters, numbers and whitespace
+     * with a space, splitting on whitespace and taking char n-grams of each (space-padded for
+     * char_wb) word, done in one scan: words are copied into x.text separated by single spaces,
+     * so a padded word is just the range around it, and each n-gram is resolved through the
+     * vocab with a hash extended one char at a time.
+     */
+    private void vectorize(String text, Scratch x) {
+        scan(text, x);
+        finish(x);
+    }
+
+    /** Counts the vocab n-grams of text into x (ids, tf) and how many n-grams it has at all. */
+    private void scan(String text, Scratch x) {
+        if (needsFullCaseMapping(text)) text = text.toLowerCase(Locale.ROOT);
+        int len = clean(text, x);
+        char[] buf = x.text;
+        boolean wb = !"word".equalsIgnoreCase(analyzer);
+
+        x.n = 0;
+        x.grams = 0;
+        x.bloomHits = 0;
+        int i = 1;
+        while (i < len) {
+            int end = i;
+            while (buf[end] != ' ') end++;
+            if (wb) countNgrams(buf, i - 1, end + 1, x);
+            else countNgrams(buf, i, end, x);
+            i = end + 1;
+        }
+    }
+
+    /** Turns the counts of the last scan into the l2-normalized tf-idf vector (ascending ids). */
+    private void finish(Scratch x) {
+        // ascending ids keep the sums in the same order as a dense dot product
+        int n = x.n;
+        Arrays.sort(x.ids, 0, n);
         double norm = 0.0;
-        for (double v : x) norm += v * v;
+        for (int k = 0; k < n; k++) {
+            int id = x.ids[k];
+            double v = x.tf[x.pos[id] - 1] * idf[id];
+            x.val[k] = v;
+            norm += v * v;
+        }
+        for (int k = 0; k < n; k++) x.pos[x.ids[k]] = 0;
         norm = Math.sqrt(norm);
-        if (norm > 0) for (int i = 0; i < x.length; i++) x[i] /= norm;
+        if (norm > 0) for (int k = 0; k < n; k++) x.val[k] /= norm;
+    }
 
-        return x;
+    /** Drops the counts of the last scan without building a vector. */
+    private static void discard(Scratch x) {
+        for (int k = 0; k < x.n; k++) x.pos[x.ids[k]] = 0;
+        x.n = 0;
     }
 
-    private void bump(Map<Integer, Double> counts, String token) {
-        Integer idx = vocab.get(token);
-        if (idx == null) return;
-        counts.put(idx, counts.getOrDefault(idx, 0.0) + 1.0);
+    /**
+     * The text as the vectorizer sees it: lowercased words of letters and numbers, single-spaced,
+     * no punctuation. Texts with the same normalized form get the same prediction.
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        if (needsFullCaseMapping(text)) text = text.toLowerCase(Locale.ROOT);
+        char[] buf = new char[text.length() * 2 + 2];
+        int len = clean(text, buf);
+        return len <= 2 ? "" : new String(buf, 1, len - 2);
     }
 
-    private static List<String> simpleWordTokenize(String s) {
-        String cleaned = (s == null ? "" : s).toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}\\s]", " ");
-        String[] parts = cleaned.trim().split("\\s+");
-        List<String> out = new ArrayList<>();
-        for (String p : parts) if (!p.isEmpty()) out.add(p);
-        return out;
+    private static int clean(String text, Scratch x) {
+        int need = text.length() * 2 + 2;
+        if (x.text.length < need) x.text = new char[Math.max(need, x.text.length * 2)];
+        return clean(text, x.text);
     }
 
-    private static List<String> charNgrams(String s, int nMin, int nMax) {
-        List<String> out = new ArrayList<>();
-        if (s == null) return out;
-        int L = s.length();
-        for (int n = nMin; n <= nMax; n++) {
-            if (n > L) continue;
-            for (int i = 0; i + n <= L; i++) out.add(s.substring(i, i + n));
+    /**
+     * Writes " w1 w2 ... wn " (lowercased words, single spaces) into buf and returns its length;
+     * buf must hold 2 * text.length() + 2 chars.
+     * Word characters are letters and numbers by code point, as \p{L} and \p{N} match them.
+     */
+    private static int clean(String text, char[] buf) {
+        int len = 0;
+        buf[len++] = ' ';
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isWordCodePoint(cp)) {
+                len += Character.toChars(Character.toLowerCase(cp), buf, len);
+            } else if (buf[len - 1] != ' ') {
+                buf[len++] = ' ';
+            }
+        }
+        if (buf[len - 1] != ' ') buf[len++] = ' ';
+        return len;
+    }
+
+    private static boolean isWordCodePoint(int cp) {
+        if (Character.isLetter(cp)) return true;
+        switch (Character.getType(cp)) {
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.LETTER_NUMBER:
+            case Character.OTHER_NUMBER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Capital dotted I and sigma lowercase differently in context than char by char. */
+    private static boolean needsFullCaseMapping(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\u0130' || c == '\u03A3') return true;
+        }
+        return false;
+    }
+
+    /** Counts every vocab n-gram (nMin..nMax chars) of buf[from, to). */
+    private void countNgrams(char[] buf, int from, int to, Scratch x) {
+        for (int i = from; i < to; i++) {
+            int h = 0;
+            int maxLen = Math.min(nMax, to - i);
+            for (int n = 1; n <= maxLen; n++) {
+                h = 31 * h + buf[i + n - 1];
+                if (n < nMin) continue;
+                x.grams++;
+                if (!inBloom(h)) continue;
+                x.bloomHits++;
+                int id = vocab.find(h, buf, i, n);
+                if (id < 0) continue;
+                int slot = x.pos[id] - 1;
+                if (slot < 0) {
+                    slot = x.n++;
+                    x.pos[id] = slot + 1;
+                    x.ids[slot] = id;
+                    x.tf[slot] = 0;
+                }
+                x.tf[slot]++;
+            }
         }
-        return out;
     }
 
     // --------- Math ---------
 
-    private static double[] matVec(double[][] A, double[] x, double[] b) {
-        int R = A.length;
-        double[] y = new double[R];
-        for (int r = 0; r < R; r++) {
-            double s = 0.0;
-            double[] row = A[r];
-            int len = Math.min(row.length, x.length);
-            for (int c = 0; c < len; c++) s += row[c] * x[c];
-            y[r] = s + (b != null && r < b.length ? b[r] : 0.0);
+    /** coef . x + intercept, touching only the feature-major rows of x's active features. */
+    private double[] sparseMatVec(Scratch x) {
+        double[] y = x.logits;
+        Arrays.fill(y, 0.0);
+        if (coefQ != null) {
+            for (int i = 0; i < x.n; i++) {
+                double v = x.val[i];
+                int base = x.ids[i] * nClasses;
+                for (int r = 0; r < nClasses; r++) y[r] += coefQ[base + r] * v;
+            }
+        } else {
+            for (int i = 0; i < x.n; i++) {
+                double v = x.val[i];
+                int base = x.ids[i] * nClasses;
+                for (int r = 0; r < nClasses; r++) y[r] += coefT[base + r] * v;
+            }
         }
+        finishLogits(y, 0);
         return y;
     }
 
-    private static double[] softmax(double[] z) {
+    /** Scales (int8) and adds the intercept to the accumulated logits at y[off, off + nClasses). */
+    private void finishLogits(double[] y, int off) {
+        if (coefQ != null) {
+            for (int r = 0; r < nClasses; r++) y[off + r] = y[off + r] * coefScale[r] + intercept[r];
+        } else {
+            for (int r = 0; r < nClasses; r++) y[off + r] += intercept[r];
+        }
+    }
+
+    /**
+     * Scores texts[lo, hi) into out. The block's feature vectors are gathered as CSR rows, then
+     * transposed so the product walks coef one feature row at a time for every utterance that
+     * uses it. Features are visited in ascending id order, so each utterance's logits are summed
+     * in the same order as {@link #sparseMatVec} and come out bit-identical. With thr, rows the
+     * off-topic gate answers get no vector and are left out of the product.
+     */
+    private void predictBlock(List<String> texts, int lo, int hi, Prediction[] out, Thresholds thr) {
+        Scratch x = scratch.get();
+        int m = hi - lo;
+        int[] rowStart = new int[m + 1];
+        int[] ids = new int[64 * m];
+        double[] vals = new double[64 * m];
+        int nnz = 0, nGated = 0;
+        for (int row = 0; row < m; row++) {
+            String text = texts.get(lo + row);
+            scan(text == null ? "" : text, x);
+            if (thr != null && offTopic(x)) {
+                discard(x);
+                out[lo + row] = offTopicPrediction();
+                nGated++;
+                rowStart[row + 1] = nnz;
+                continue;
+            }
+            finish(x);
+            if (nnz + x.n > ids.length) {
+                int cap = Math.max(nnz + x.n, ids.length * 2);
+                ids = Arrays.copyOf(ids, cap);
+                vals = Arrays.copyOf(vals, cap);
+            }
+            System.arraycopy(x.ids, 0, ids, nnz, x.n);
+            System.arraycopy(x.val, 0, vals, nnz, x.n);
+            nnz += x.n;
+            rowStart[row + 1] = nnz;
+        }
+
+        // CSR -> CSC: colStart[f] .. colStart[f + 1] are the (row, value) pairs of feature f
+        int[] colStart = new int[nFeatures + 1];
+        for (int k = 0; k < nnz; k++) colStart[ids[k] + 1]++;
+        for (int f = 0; f < nFeatures; f++) colStart[f + 1] += colStart[f];
+        int[] next = Arrays.copyOf(colStart, nFeatures);
+        int[] colRow = new int[nnz];
+        double[] colVal = new double[nnz];
+        for (int row = 0; row < m; row++) {
+            for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                int p = next[ids[k]]++;
+                colRow[p] = row;
+                colVal[p] = vals[k];
+            }
+        }
+
+        double[] y = new double[m * nClasses];
+        for (int f = 0; f < nFeatures; f++) {
+            int base = f * nClasses;
+            for (int p = colStart[f]; p < colStart[f + 1]; p++) {
+                double v = colVal[p];
+                int yb = colRow[p] * nClasses;
+                if (coefQ != null) {
+                    for (int r = 0; r < nClasses; r++) y[yb + r] += coefQ[base + r] * v;
+                } else {
+                    for (int r = 0; r < nClasses; r++) y[yb + r] += coefT[base + r] * v;
+                }
+            }
+        }
+        for (int row = 0; row < m; row++) {
+            if (out[lo + row] != null) continue;   // gated
+            finishLogits(y, row * nClasses);
+            Prediction p = toPrediction(softmax(y, row * nClasses));
+            out[lo + row] = thr == null ? p : applyThreshold(p, thr.defaultThreshold, thr.perClass);
+        }
+        if (nGated > 0) gated.addAndGet(nGated);
+    }
+
+    /** Halves the range until it fits in one block. */
+    private final class BatchTask extends RecursiveAction {
+        final List<String> texts;
+        final int lo, hi;
+        final Prediction[] out;
+        final Thresholds thr;
+
+        BatchTask(List<String> texts, int lo, int hi, Prediction[] out, Thresholds thr) {
+            this.texts = texts; this.lo = lo; this.hi = hi; this.out = out; this.thr = thr;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= BATCH_BLOCK) {
+                predictBlock(texts, lo, hi, out, thr);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new BatchTask(texts, lo, mid, out, thr), new BatchTask(texts, mid, hi, out, thr));
+        }
+    }
+
+    /** Softmax of z[off, off + nClasses) into a new array. */
+    private double[] softmax(double[] z, int off) {
         double max = Double.NEGATIVE_INFINITY;
-        for (double v : z) if (v > max) max = v;
+        for (int i = 0; i < nClasses; i++) if (z[off + i] > max) max = z[off + i];
         double sum = 0.0;
-        double[] e = new double[z.length];
-        for (int i = 0; i < z.length; i++) {
-            e[i] = Math.exp(z[i] - max);
+        double[] e = new double[nClasses];
+        for (int i = 0; i < nClasses; i++) {
+            e[i] = Math.exp(z[off + i] - max);
             sum += e[i];
         }
         if (sum == 0.0) {
-            Arrays.fill(e, 1.0 / z.length);
+            Arrays.fill(e, 1.0 / nClasses);
             return e;
         }
         for (int i = 0; i < e.length; i++) e[i] /= sum;
@@ -0,0 +1,124 @@
+package com.example.eventlink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Versioned binary format for the intent classifier.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ *   int magic 'ELIC', int version
+ *   int nClasses, int nFeatures, int ngramMin, int ngramMax, int analyzerWord (0/1), int poolLen
+ *   nClasses x class name as (int len, char[len])
+ *   int[nFeatures + 1] vocab starts, char[poolLen] vocab pool
+ *   float[nFeatures] idf
+ *   float[nFeatures * nClasses] coef, feature-major
+ *   float[nClasses] intercept
+ * </pre>
+ * Weights are stored as float32 (half the size of version 1's doubles) and widened to double on
+ * read; float rounding leaves every parity utterance's top class unchanged.
+ * Written at build time by the convertIntentModel Gradle task (app/build.gradle.kts), which must
+ * stay in sync with {@link #write}. The JSON asset remains the fallback when no binary is packaged.
+ */
+final class IntentModelFormat {
+
+    static final int MAGIC = 0x454C4943; // "ELIC"
+    static final int VERSION = 2;
+
+    static final String BINARY_ASSET = "intent_model_android.bin";
+
+    /** Inference arrays shared by both loaders and IntentLocalClassifier. */
+    static final class Model {
+        final String[] classes;
+        final TermTable vocab;
+        final double[] idf;
+        final double[] coefT;
+        final double[] intercept;
+        final String analyzer;
+        final int nMin, nMax;
+
+        Model(String[] classes, TermTable vocab, double[] idf, double[] coefT, double[] intercept,
+              String analyzer, int nMin, int nMax) {
+            this.classes = classes; this.vocab = vocab; this.idf = idf;
+            this.coefT = coefT; this.intercept = intercept;
+            this.analyzer = analyzer; this.nMin = nMin; this.nMax = nMax;
+        }
+    }
+
+    private IntentModelFormat() {}
+
+    static Model read(ByteBuffer buf) throws IOException {
+        ByteBuffer b = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < 32 || b.getInt() != MAGIC) throw new IOException("Not an intent model file");
+        int version = b.getInt();
+        if (version != VERSION) throw new IOException("Unsupported intent model version " + version);
+
+        int nClasses = b.getInt(), nFeatures = b.getInt();
+        int nMin = b.getInt(), nMax = b.getInt();
+        String analyzer = b.getInt() != 0 ? "word" : "char_wb";
+        int poolLen = b.getInt();
+
+        String[] classes = new String[nClasses];
+        for (int i = 0; i < nClasses; i++) {
+            char[] cs = new char[b.getInt()];
+            b.asCharBuffer().get(cs);
+            b.position(b.position() + 2 * cs.length);
+            classes[i] = new String(cs);
+        }
+
+        int[] starts = new int[nFeatures + 1];
+        b.asIntBuffer().get(starts);
+        b.position(b.position() + 4 * starts.length);
+        char[] pool = new char[poolLen];
+        b.asCharBuffer().get(pool);
+        b.position(b.position() + 2 * poolLen);
+
+        double[] idf = getFloats(b, nFeatures);
+        double[] coefT = getFloats(b, nFeatures * nClasses);
+        double[] intercept = getFloats(b, nClasses);
+        return new Model(classes, new TermTable(pool, starts), idf, coefT, intercept, analyzer, nMin, nMax);
+    }
+
+    /** Reference writer for the layout above (the build uses the Gradle task). */
+    static void write(Model m, File out) throws IOException {
+        int nClasses = m.classes.length, nFeatures = m.idf.length;
+        char[] pool = m.vocab.pool;
+        long size = 4L * 8 + 4L * (nFeatures + 1) + 2L * pool.length
+                + 4L * (nFeatures + (long) nFeatures * nClasses + nClasses);
+        for (String c : m.classes) size += 4 + 2L * c.length();
+
+        ByteBuffer b = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putInt(VERSION);
+        b.putInt(nClasses).putInt(nFeatures).putInt(m.nMin).putInt(m.nMax);
+        b.putInt("word".equalsIgnoreCase(m.analyzer) ? 1 : 0).putInt(pool.length);
+        for (String c : m.classes) {
+            b.putInt(c.length());
+            for (int i = 0; i < c.length(); i++) b.putChar(c.charAt(i));
+        }
+        for (int v : m.vocab.start) b.putInt(v);
+        for (char c : pool) b.putChar(c);
+        for (double v : m.idf) b.putFloat((float) v);
+        for (double v : m.coefT) b.putFloat((float) v);
+        for (double v : m.intercept) b.putFloat((float) v);
+        b.flip();
+
+        try (FileOutputStream fos = new FileOutputStream(out); FileChannel ch = fos.getChannel()) {
+            while (b.hasRemaining()) ch.write(b);
+        }
+    }
+
+    /** n float32 values, widened for the classifier's double arithmetic. */
+    private static double[] getFloats(ByteBuffer b, int n) {
+        float[] fs = new float[n];
+        b.asFloatBuffer().get(fs);
+        b.position(b.position() + 4 * n);
+        double[] out = new double[n];
+        for (int i = 0; i < n; i++) out[i] = fs[i];
+        return out;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.eventlink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rule-based routing of chat messages: every trigger phrase of every route is matched in one
+ * pass over the message's word tokens (Aho–Corasick, compiled to a word-level DFA), and the
+ * words that are not filler are returned as the event name to look up.
+ * <p>
+ * Phrases match whole words, so "my events" matches "show my events?" but not "my eventsx".
+ * When several routes match, the one declared first in {@link Route} wins.
+ */
+final class MessageRouter {
+
+    /** Routing decisions in priority order. */
+    enum Route {
+        USER_LOCATION,
+        EVENT_TIME, EVENT_DATE, EVENT_LOCATION, EVENT_DESC, EVENT_CATEGORY,
+        USER_DETAILS,
+        REGISTERED_EVENTS,
+        NONE;
+
+        boolean isEventField() {
+            return this == EVENT_TIME || this == EVENT_DATE || this == EVENT_LOCATION
+                    || this == EVENT_DESC || this == EVENT_CATEGORY;
+        }
+    }
+
+    static final class Decision {
+        final Route route;
+        final String eventName;   // message minus filler words, null if nothing is left
+
+        Decision(Route route, String eventName) {
+            this.route = route;
+            this.eventName = eventName;
+        }
+    }
+
+    /** Filler dropped from a message to leave the event name. */
+    private static final String[] NAME_STOP_WORDS = {
+            "when", "what", "which", "time", "date", "day", "schedule", "is", "for", "the", "event", "show",
+            "tell", "about", "on", "at", "of", "start", "starts", "will", "happen", "does", "do", "it", "my",
+            "me", "where", "venue", "address", "location", "place", "held", "category", "type", "domain", "kind"
+    };
+
+    private static final Route[] ROUTES = Route.values();
+    private static final MessageRouter CHAT = new MessageRouter(chatPhrases(), NAME_STOP_WORDS);
+
+    private static Map<Route, String[]> chatPhrases() {
+        Map<Route, String[]> p = new EnumMap<>(Route.class);
+        p.put(Route.USER_LOCATION, new String[] {"where am i", "my location", "current location", "my address", "where are we"});
+        p.put(Route.EVENT_TIME, new String[] {"what time", "time", "starts at", "start at", "begin", "starting", "clock", "when does it start"});
+        p.put(Route.EVENT_DATE, new String[] {"when", "date", "day", "schedule", "which day", "which date"});
+        p.put(Route.EVENT_LOCATION, new String[] {"where", "venue", "address", "location", "place", "held", "happen", "happening"});
+        p.put(Route.EVENT_DESC, new String[] {"about", "describe", "details", "summary", "information", "info", "tell me about"});
+        p.put(Route.EVENT_CATEGORY, new String[] {"category", "type", "domain", "kind of event", "what kind of"});
+        p.put(Route.USER_DETAILS, new String[] {"my name", "who am i", "my email", "what's my name", "my info", "my profile", "my account", "my details"});
+        p.put(Route.REGISTERED_EVENTS, new String[] {"registered events", "my registrations", "what did i register", "my events", "what i've registered"});
+        return p;
+    }
+
+    /** The chat screen's routes. */
+    static MessageRouter chat() {
+        return CHAT;
+    }
+
+    private final TermTable words;     // every word of every phrase, plus the name stop words
+    private final boolean[] nameStop;  // word id -> dropped from the event name
+    private final int nWords;
+    private final int[] delta;         // [state * nWords + word] -> next state, failure links folded in
+    private final int[] best;          // state -> ordinal of the best route ending here (or at a suffix)
+
+    MessageRouter(Map<Route, String[]> phrases, String[] nameStopWords) {
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        List<int[]> seqs = new ArrayList<>();
+        List<Route> seqRoutes = new ArrayList<>();
+        for (Map.Entry<Route, String[]> e : phrases.entrySet()) {
+            for (String phrase : e.getValue()) {
+                List<String> toks = tokens(phrase);
+                if (toks.isEmpty()) continue;
+                int[] seq = new int[toks.size()];
+                for (int i = 0; i < seq.length; i++) seq[i] = ids.computeIfAbsent(toks.get(i), k -> ids.size());
+                seqs.add(seq);
+                seqRoutes.add(e.getKey());
+            }
+        }
+        for (String w : nameStopWords) {
+            for (String t : tokens(w)) ids.computeIfAbsent(t, k -> ids.size());
+        }
+
+        nWords = ids.size();
+        words = new TermTable(ids.keySet().toArray(new String[0]));
+        nameStop = new boolean[nWords];
+        for (String w : nameStopWords) {
+            for (String t : tokens(w)) nameStop[ids.get(t)] = true;
+        }
+
+        // ----- trie -----
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        children.add(new HashMap<>());
+        ends.add(Route.NONE.ordinal());
+        for (int p = 0; p < seqs.size(); p++) {
+            int s = 0;
+            for (int w : seqs.get(p)) {
+                Integer next = children.get(s).get(w);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    ends.add(Route.NONE.ordinal());
+                    children.get(s).put(w, next);
+                }
+                s = next;
+            }
+            ends.set(s, Math.min(ends.get(s), seqRoutes.get(p).ordinal()));
+        }
+
+        // ----- DFA: breadth-first, so every failure target is finished before it is used -----
+        int nStates = children.size();
+        delta = new int[nStates * nWords];
+        best = new int[nStates];
+        int[] fail = new int[nStates];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        best[0] = ends.get(0);
+        for (int w = 0; w < nWords; w++) {
+            Integer c = children.get(0).get(w);
+            if (c == null) continue;
+            delta[w] = c;
+            fail[c] = 0;
+            queue.add(c);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            best[s] = Math.min(ends.get(s), best[fail[s]]);
+            for (int w = 0; w < nWords; w++) {
+                Integer c = children.get(s).get(w);
+                if (c == null) {
+                    delta[s * nWords + w] = delta[fail[s] * nWords + w];
+                } else {
+                    delta[s * nWords + w] = c;
+                    fail[c] = delta[fail[s] * nWords + w];
+                    queue.add(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * One pass over msg: lowercases it, walks its word tokens through the DFA keeping the best
+     * route seen, and blanks out filler words for the event name. A word token is a run of
+     * letters, digits and underscores; anything else separates words.
+     */
+    Decision route(String msg) {
+        if (msg == null) return new Decision(Route.NONE, null);
+        char[] buf = msg.toLowerCase(Locale.ROOT).toCharArray();
+        int state = 0, route = Route.NONE.ordinal();
+        int i = 0;
+        while (i < buf.length) {
+            if (!isWordChar(buf[i])) { i++; continue; }
+            int start = i;
+            while (i < buf.length && isWordChar(buf[i])) i++;
+            int id = words.find(buf, start, i - start);
+            state = id < 0 ? 0 : delta[state * nWords + id];
+            route = Math.min(route, best[state]);
+            if (id >= 0 && nameStop[id]) Arrays.fill(buf, start, i, ' ');
+        }
+        return new Decision(ROUTES[route], collapseSpaces(buf));
+    }
+
+    /** buf with whitespace runs collapsed to one space and trimmed, or null if nothing is left. */
+    private static String collapseSpaces(char[] buf) {
+        int len = 0;
+        for (char c : buf) {
+            if (isSpace(c)) {
+                if (len > 0 && buf[len - 1] != ' ') buf[len++] = ' ';
+            } else {
+                buf[len++] = c;
+            }
+        }
+        if (len > 0 && buf[len - 1] == ' ') len--;
+        return len == 0 ? null : new String(buf, 0, len);
+    }
+
+    private static List<String> tokens(String phrase) {
+        List<String> out = new ArrayList<>();
+        String s = phrase.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < s.length()) {
+            if (!isWordChar(s.charAt(i))) { i++; continue; }
+            int start = i;
+            while (i < s.length() && isWordChar(s.charAt(i))) i++;
+            out.add(s.substring(start, i));
+        }
+        return out;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
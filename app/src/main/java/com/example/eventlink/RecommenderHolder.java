@@ -1,28 +1,151 @@
 package com.example.eventlink;
 
 import android.content.Context;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Thread-safe singleton holder for EventRecommender.
- * Prevents reloading the weights JSON each time a screen opens.
+ * Prevents reloading the weights each time a screen opens.
+ * <p>
+ * Loading runs on an {@link AsyncHolder} executor (started from {@link EventLinkApp}).
+ * Concurrent callers share one in-flight load, and once a model is published
+ * readers only do a volatile read. {@link #reset()} reloads in the background and
+ * swaps the new model in, the old one keeps serving until then; {@link #refit} does the
+ * same with a model rebuilt from the event catalog.
  */
 public final class RecommenderHolder {
 
-    private static EventRecommender instance = null;
+    private static final String TAG = "RecommenderHolder";
+
+    private static final AsyncHolder<EventRecommender> HOLDER =
+            new AsyncHolder<EventRecommender>(TAG, "recommender-loader") {
+                @Override
+                EventRecommender create(Context app) throws Exception {
+                    return new EventRecommender(app);
+                }
+
+                @Override
+                void loaded(EventRecommender r, long ms) {
+                    Log.i(TAG, "Recommender ready: events=" + r.size() + ", bytes=" + r.footprintBytes()
+                            + ", ms=" + ms);
+                }
+
+                // a reload goes through the same carry-over as a refit, so live edits survive reset()
+                @Override
+                EventRecommender publish(EventRecommender old, EventRecommender r) {
+                    return RecommenderHolder.publish(old, r) < 0 ? peek() : r;
+                }
+            };
 
     private RecommenderHolder() {
         // Private constructor to prevent instantiation
     }
 
-    public static synchronized EventRecommender get(Context ctx) throws Exception {
-        if (instance == null) {
-            instance = new EventRecommender(ctx.getApplicationContext());
-        }
-        return instance;
+    /** Starts loading in the background if nothing is loaded or loading yet. */
+    public static void warmUp(Context ctx) {
+        getAsync(ctx);
+    }
+
+    /** Completes with the current model; never blocks the caller. */
+    public static CompletableFuture<EventRecommender> getAsync(Context ctx) {
+        return HOLDER.getAsync(ctx);
+    }
+
+    /** Delivers the model on the main thread once it is ready (null if loading failed). */
+    public static void whenReady(Context ctx, Consumer<EventRecommender> callback) {
+        HOLDER.whenReady(ctx, callback);
+    }
+
+    /** The published model, or null while the first load is still running. */
+    public static EventRecommender peek() {
+        return HOLDER.peek();
+    }
+
+    /** Blocking access; prefer {@link #getAsync} or {@link #whenReady} on the main thread. */
+    public static EventRecommender get(Context ctx) throws Exception {
+        return HOLDER.get(ctx);
+    }
+
+    /**
+     * Reloads the weights in the background and swaps them in, keeping events added or removed live;
+     * readers keep the old model until then. Completes with the model then serving (null before the
+     * first load was started).
+     */
+    public static CompletableFuture<EventRecommender> reset() {
+        return HOLDER.reload();
+    }
+
+    /**
+     * Rebuilds the model from the bundled catalog plus source on the loader thread, persists it
+     * for the next launch and publishes it. Queries keep using the current model until the
+     * finished one is swapped in.
+     */
+    public static void refit(Context ctx, EventModelRefit.EventSource source) {
+        Context app = ctx.getApplicationContext();
+        getAsync(app).thenAcceptAsync(current -> {
+            long t0 = System.nanoTime();
+            try {
+                // the bundled catalog is refitted along with the created events, see withCatalog
+                EventModelFormat.Model m = EventModelRefit.fit(
+                        EventModelRefit.withCatalog(EventModelFormat.loadShipped(app), source), current.analyzer());
+                if (m == null) return;
+                EventModelFormat.deleteStaleCaches(app);
+                EventModelFormat.write(m, EventModelFormat.refitFile(app));
+                EventRecommender r = new EventRecommender(m);
+                int carried = publish(r);
+                Log.i(TAG, "Refit published: events=" + r.size() + ", terms=" + m.idf.length
+                        + ", carried=" + carried + ", ms=" + (System.nanoTime() - t0) / 1_000_000);
+            } catch (Exception e) {
+                Log.e(TAG, "Refit failed", e);
+            }
+        }, HOLDER.executor());
+    }
+
+    /**
+     * Swaps in a fully built model; its result cache starts empty. Events added or removed on the
+     * replaced model that r's catalog does not reflect are re-applied to r, including ones that land
+     * during the swap. Returns how many were carried over.
+     */
+    static int publish(EventRecommender r) {
+        return publish(null, r, false);
+    }
+
+    /**
+     * Like {@link #publish(EventRecommender)} for a reload that started from base: returns -1 and
+     * publishes nothing once another model has replaced base, since that one is newer.
+     */
+    private static int publish(EventRecommender base, EventRecommender r) {
+        return publish(base, r, true);
     }
 
-    /** Optional reset method if you ever need to reload weights manually */
-    public static synchronized void reset() {
-        instance = null;
+    private static int publish(EventRecommender base, EventRecommender r, boolean onlyOverBase) {
+        int carried = 0;
+        EventRecommender old;
+        long seen;
+        do {
+            old = HOLDER.peek();
+            if (onlyOverBase && old != base) return -1;
+            seen = 0;
+            if (old != null) {
+                List<EventRecommender.LiveChange> changes = old.liveChangesSince(0);
+                carried += r.carryOver(changes);
+                if (!changes.isEmpty()) seen = changes.get(changes.size() - 1).seq;
+            }
+        } while (!HOLDER.compareAndSet(old, r));   // another model was published meanwhile: carry its changes
+        // callers still holding old may have written to it between the read and the swap
+        if (old != null) carried += r.carryOver(old.liveChangesSince(seen));
+        swapped(old);
+        return carried;
+    }
+
+    private static void swapped(EventRecommender old) {
+        if (old != null) {
+            Log.i(TAG, "Replaced model v" + old.version() + ": cache hits=" + old.cacheHits()
+                    + ", misses=" + old.cacheMisses());
+        }
     }
 }
@@ -0,0 +1,113 @@
+package com.example.eventlink;
+
+/**
+ * Compact term -> id table.
+ * Terms live in one shared char pool; lookups hash a char range with the same
+ * function as String.hashCode and verify against the pool, so callers can resolve
+ * tokens straight out of a scratch buffer without building Strings.
+ */
+final class TermTable {
+
+    final char[] pool;             // all term chars, back to back
+    final int[] start;             // [size + 1] offsets into pool
+    private final int[] slots;     // open addressing, holds id + 1 (0 = empty)
+    private final int mask;
+
+    /** @param terms terms indexed by id; null entries are gaps that never match */
+    TermTable(String[] terms) {
+        this(poolOf(terms), startsOf(terms));
+    }
+
+    /** Wraps an existing pool (e.g. read from a binary model); empty ranges are gaps. */
+    TermTable(char[] pool, int[] start) {
+        this.pool = pool;
+        this.start = start;
+        int n = start.length - 1;
+        int cap = Integer.highestOneBit(Math.max(4, n * 2) - 1) << 1;
+        slots = new int[cap];
+        mask = cap - 1;
+        for (int i = 0; i < n; i++) {
+            int len = start[i + 1] - start[i];
+            if (len == 0) continue;
+            int h = mix(hash(pool, start[i], len)) & mask;
+            while (slots[h] != 0) h = (h + 1) & mask;
+            slots[h] = i + 1;
+        }
+    }
+
+    private static int[] startsOf(String[] terms) {
+        int[] start = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) start[i + 1] = start[i] + (terms[i] == null ? 0 : terms[i].length());
+        return start;
+    }
+
+    private static char[] poolOf(String[] terms) {
+        int[] start = startsOf(terms);
+        char[] pool = new char[start[terms.length]];
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] != null) terms[i].getChars(0, terms[i].length(), pool, start[i]);
+        }
+        return pool;
+    }
+
+    int size() { return start.length - 1; }
+
+    int find(String term) {
+        if (term == null) return -1;
+        return find(term.hashCode(), term, null, 0, term.length());
+    }
+
+    int find(char[] buf, int off, int len) {
+        return find(hash(buf, off, len), null, buf, off, len);
+    }
+
+    /** Same as {@link #find(char[], int, int)} when the String-style hash of the range is already known. */
+    int find(int hash, char[] buf, int off, int len) {
+        return find(hash, null, buf, off, len);
+    }
+
+    String term(int id) {
+        if (id < 0 || id >= size()) return null;
+        return new String(pool, start[id], start[id + 1] - start[id]);
+    }
+
+    long footprintBytes() {
+        return 2L * pool.length + 4L * start.length + 4L * slots.length;
+    }
+
+    static int hash(char[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) h = 31 * h + buf[i];
+        return h;
+    }
+
+    private int find(int hash, String s, char[] buf, int off, int len) {
+        int h = mix(hash) & mask;
+        int slot;
+        while ((slot = slots[h]) != 0) {
+            int id = slot - 1;
+            int p = start[id];
+            if (start[id + 1] - p == len && (s != null ? sameChars(s, p, len) : sameChars(buf, off, p, len))) {
+                return id;
+            }
+            h = (h + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean sameChars(String s, int p, int len) {
+        for (int i = 0; i < len; i++) if (pool[p + i] != s.charAt(i)) return false;
+        return true;
+    }
+
+    private boolean sameChars(char[] buf, int off, int p, int len) {
+        for (int i = 0; i < len; i++) if (pool[p + i] != buf[off + i]) return false;
+        return true;
+    }
+
+    private static int mix(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
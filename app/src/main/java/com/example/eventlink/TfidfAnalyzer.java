@@ -0,0 +1,113 @@
+package com.example.eventlink;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass word analyzer matching the training vectorizer (scikit-learn TfidfVectorizer):
+ * lowercase, tokens of 2+ word characters, optional English stop words, n-grams over the
+ * remaining tokens joined by one space.
+ * <p>
+ * Kept tokens are copied into a per-thread char buffer separated by single spaces, so every
+ * n-gram is one contiguous range that {@link TermTable#find(char[], int, int)} can resolve
+ * without building Strings.
+ */
+final class TfidfAnalyzer {
+
+    /** Receives each n-gram as a range of the analyzer's scratch buffer, valid only during the call. */
+    interface TermSink {
+        void term(char[] buf, int off, int len);
+    }
+
+    final int ngramMin, ngramMax;
+    final boolean englishStopWords;
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    TfidfAnalyzer(int ngramMin, int ngramMax, boolean englishStopWords) {
+        this.ngramMin = Math.max(1, ngramMin);
+        this.ngramMax = Math.max(this.ngramMin, ngramMax);
+        this.englishStopWords = englishStopWords;
+    }
+
+    private static final class Buffers {
+        char[] chars = new char[256];
+        int[] tokStart = new int[32];
+        int[] tokEnd = new int[32];
+    }
+
+    void analyze(CharSequence text, TermSink sink) {
+        if (text == null) return;
+        Buffers b = buffers.get();
+        char[] chars = b.chars;
+        int nTok = 0, len = 0;
+        int n = text.length();
+        for (int i = 0; i <= n; ) {
+            // skip separators
+            while (i < n && !isWordChar(text.charAt(i))) i++;
+            if (i >= n) break;
+            int begin = len == 0 ? 0 : len + 1;
+            int end = begin;
+            while (i < n && isWordChar(text.charAt(i))) {
+                if (end >= chars.length) chars = b.chars = Arrays.copyOf(chars, chars.length * 2);
+                chars[end++] = Character.toLowerCase(text.charAt(i++));
+            }
+            if (end - begin < 2 || (englishStopWords && STOP_WORDS.find(chars, begin, end - begin) >= 0)) continue;
+            if (begin > 0) chars[len] = ' ';
+            if (nTok == b.tokStart.length) {
+                b.tokStart = Arrays.copyOf(b.tokStart, nTok * 2);
+                b.tokEnd = Arrays.copyOf(b.tokEnd, nTok * 2);
+            }
+            b.tokStart[nTok] = begin;
+            b.tokEnd[nTok++] = end;
+            len = end;
+        }
+
+        for (int g = ngramMin; g <= ngramMax; g++) {
+            for (int t = 0; t + g <= nTok; t++) {
+                int off = b.tokStart[t];
+                sink.term(chars, off, b.tokEnd[t + g - 1] - off);
+            }
+        }
+    }
+
+    /** Python's \w under re.UNICODE: letters, digits and underscore. */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /** scikit-learn's ENGLISH_STOP_WORDS. */
+    static final TermTable STOP_WORDS = new TermTable(new String[] {
+            "a", "about", "above", "across", "after", "afterwards", "again", "against", "all", "almost",
+            "alone", "along", "already", "also", "although", "always", "am", "among", "amongst", "amoungst",
+            "amount", "an", "and", "another", "any", "anyhow", "anyone", "anything", "anyway", "anywhere",
+            "are", "around", "as", "at", "back", "be", "became", "because", "become", "becomes",
+            "becoming", "been", "before", "beforehand", "behind", "being", "below", "beside", "besides", "between",
+            "beyond", "bill", "both", "bottom", "but", "by", "call", "can", "cannot", "cant",
+            "co", "con", "could", "couldnt", "cry", "de", "describe", "detail", "do", "done",
+            "down", "due", "during", "each", "eg", "eight", "either", "eleven", "else", "elsewhere",
+            "empty", "enough", "etc", "even", "ever", "every", "everyone", "everything", "everywhere", "except",
+            "few", "fifteen", "fifty", "fill", "find", "fire", "first", "five", "for", "former",
+            "formerly", "forty", "found", "four", "from", "front", "full", "further", "get", "give",
+            "go", "had", "has", "hasnt", "have", "he", "hence", "her", "here", "hereafter",
+            "hereby", "herein", "hereupon", "hers", "herself", "him", "himself", "his", "how", "however",
+            "hundred", "i", "ie", "if", "in", "inc", "indeed", "interest", "into", "is",
+            "it", "its", "itself", "keep", "last", "latter", "latterly", "least", "less", "ltd",
+            "made", "many", "may", "me", "meanwhile", "might", "mill", "mine", "more", "moreover",
+            "most", "mostly", "move", "much", "must", "my", "myself", "name", "namely", "neither",
+            "never", "nevertheless", "next", "nine", "no", "nobody", "none", "noone", "nor", "not",
+            "nothing", "now", "nowhere", "of", "off", "often", "on", "once", "one", "only",
+            "onto", "or", "other", "others", "otherwise", "our", "ours", "ourselves", "out", "over",
+            "own", "part", "per", "perhaps", "please", "put", "rather", "re", "same", "see",
+            "seem", "seemed", "seeming", "seems", "serious", "several", "she", "should", "show", "side",
+            "since", "sincere", "six", "sixty", "so", "some", "somehow", "someone", "something", "sometime",
+            "sometimes", "somewhere", "still", "such", "system", "take", "ten", "than", "that", "the",
+            "their", "them", "themselves", "then", "thence", "there", "thereafter", "thereby", "therefore", "therein",
+            "thereupon", "these", "they", "thick", "thin", "third", "this", "those", "though", "three",
+            "through", "throughout", "thru", "thus", "to", "together", "too", "top", "toward", "towards",
+            "twelve", "twenty", "two", "un", "under", "until", "up", "upon", "us", "very",
+            "via", "was", "we", "well", "were", "what", "whatever", "when", "whence", "whenever",
+            "where", "whereafter", "whereas", "whereby", "wherein", "whereupon", "wherever", "whether", "which", "while",
+            "whither", "who", "whoever", "whole", "whom", "whose", "why", "will", "with", "within",
+            "without", "would", "yet", "you", "your", "yours", "yourself", "yourselves"
+    });
+}
@@ -0,0 +1,227 @@
+package com.example.eventlink;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide cache of the signed-in user's users/{uid} document.
+ * <p>
+ * One snapshot listener per signed-in user keeps the in-memory profile current, so chat, For You
+ * and DbProvider read it without a fetch of their own. The last snapshot is persisted; observers
+ * (UI) get it right away, marked {@link UserProfile#fromCache}, so a cold start can render
+ * immediately. One-shot reads ({@link #whenLoaded}) that feed answers wait for a snapshot the
+ * server has confirmed.
+ * <p>
+ * Main thread only: callers and Firestore callbacks both run there.
+ */
+public final class UserProfileStore {
+
+    private static final String TAG = "UserProfileStore";
+    private static final String PREFS = "user_profile_cache";
+    private static final String KEY_SNAPSHOT = "last_snapshot";
+
+    private static UserProfileStore instance;
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final SharedPreferences prefs;
+    private String uid;                                   // user the listener is attached for
+    private ListenerRegistration registration;
+    private UserProfile current;                          // last snapshot for uid, null until one arrives
+    private final List<Consumer<UserProfile>> waiting = new ArrayList<>();    // one-shot, until a server snapshot
+    private final List<Consumer<UserProfile>> observers = new ArrayList<>();  // every snapshot
+    private long served, snapshots;
+
+    /** The fields of users/{uid} the app reads. */
+    public static final class UserProfile {
+        public final String uid;
+        public final boolean exists;
+        public final String name, email, location;
+        public final List<String> interests, selectedInterests, registeredEvents;
+        public final boolean fromCache;                   // persisted or offline copy, not confirmed by the server
+
+        UserProfile(String uid, boolean exists, String name, String email, String location,
+                    List<String> interests, List<String> selectedInterests, List<String> registeredEvents,
+                    boolean fromCache) {
+            this.uid = uid; this.exists = exists;
+            this.name = name; this.email = email; this.location = location;
+            this.interests = interests; this.selectedInterests = selectedInterests;
+            this.registeredEvents = registeredEvents;
+            this.fromCache = fromCache;
+        }
+
+        static UserProfile of(String uid, DocumentSnapshot doc) {
+            return new UserProfile(uid, doc.exists(), doc.getString("name"), doc.getString("email"),
+                    doc.getString("location"), strings(doc.get("interests")),
+                    strings(doc.get("selectedInterests")), strings(doc.get("registeredEvents")),
+                    doc.getMetadata().isFromCache());
+        }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("uid", uid).put("exists", exists)
+                    .put("name", name).put("email", email).put("location", location)
+                    .put("interests", new JSONArray(interests))
+                    .put("selectedInterests", new JSONArray(selectedInterests))
+                    .put("registeredEvents", new JSONArray(registeredEvents));
+        }
+
+        static UserProfile fromJson(JSONObject o) {
+            return new UserProfile(o.optString("uid"), o.optBoolean("exists"), optString(o, "name"),
+                    optString(o, "email"), optString(o, "location"), strings(o.optJSONArray("interests")),
+                    strings(o.optJSONArray("selectedInterests")), strings(o.optJSONArray("registeredEvents")),
+                    true);
+        }
+    }
+
+    private UserProfileStore(Context ctx) {
+        prefs = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized UserProfileStore get(Context ctx) {
+        if (instance == null) instance = new UserProfileStore(ctx.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * Delivers uid's profile once, as last confirmed by the server: right away if memory has it,
+     * else when the listener's first server snapshot arrives. If the listener fails first, the
+     * cached copy (fromCache) is delivered, or null when there is none.
+     */
+    public void whenLoaded(String uid, Consumer<UserProfile> callback) {
+        listen(uid);
+        if (current != null && !current.fromCache) {
+            served++;
+            callback.accept(current);
+        } else {
+            waiting.add(callback);
+        }
+    }
+
+    /**
+     * Delivers uid's profile now if one is known and again on every change, until the returned
+     * registration is removed.
+     */
+    public ListenerRegistration observe(String uid, Consumer<UserProfile> observer) {
+        listen(uid);
+        observers.add(observer);
+        if (current != null) {
+            served++;
+            observer.accept(current);
+        }
+        return () -> observers.remove(observer);
+    }
+
+    /** The known profile of uid (possibly a cached copy), or null. */
+    public UserProfile peek(String uid) {
+        listen(uid);
+        return current;
+    }
+
+    /** Detaches the listener and forgets the profile, including the persisted copy. */
+    public void signedOut() {
+        detach();
+        current = null;
+        prefs.edit().remove(KEY_SNAPSHOT).apply();
+    }
+
+    /** Profiles served from memory vs snapshots received, for the debug screen. */
+    public String stats() {
+        return "profile: served=" + served + " snapshots=" + snapshots + " listening=" + (registration != null);
+    }
+
+    private void listen(String uid) {
+        if (uid == null) return;
+        if (uid.equals(this.uid) && registration != null) return;
+        if (!uid.equals(this.uid)) {
+            detach();
+            this.uid = uid;
+            current = restore(uid);
+        }
+        // metadata changes too, so a cache snapshot is followed by the server's confirmation
+        registration = FirebaseFirestore.getInstance().collection("users").document(uid)
+                .addSnapshotListener(MetadataChanges.INCLUDE, (doc, e) -> {
+                    if (!uid.equals(this.uid)) return;   // a late callback for a previous user
+                    if (e != null || doc == null) {
+                        Log.w(TAG, "Profile listener failed: " + (e == null ? "no snapshot" : e.getMessage()));
+                        registration = null;               // the next read re-attaches
+                        deliverWaiting(current);
+                        return;
+                    }
+                    snapshots++;
+                    current = UserProfile.of(uid, doc);
+                    persist(current);
+                    if (!current.fromCache) deliverWaiting(current);
+                    for (Consumer<UserProfile> o : new ArrayList<>(observers)) o.accept(current);
+                });
+    }
+
+    private void detach() {
+        if (registration != null) registration.remove();
+        registration = null;
+        uid = null;
+        observers.clear();
+        // pending one-shot reads would otherwise never complete
+        deliverWaiting(null);
+    }
+
+    private void deliverWaiting(UserProfile p) {
+        if (waiting.isEmpty()) return;
+        List<Consumer<UserProfile>> ready = new ArrayList<>(waiting);
+        waiting.clear();
+        MAIN.post(() -> {
+            for (Consumer<UserProfile> c : ready) c.accept(p);
+        });
+    }
+
+    private void persist(UserProfile p) {
+        try {
+            prefs.edit().putString(KEY_SNAPSHOT, p.toJson().toString()).apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Profile not persisted: " + e.getMessage());
+        }
+    }
+
+    /** The persisted profile if it belongs to uid. */
+    private UserProfile restore(String uid) {
+        String json = prefs.getString(KEY_SNAPSHOT, null);
+        if (json == null) return null;
+        try {
+            UserProfile p = UserProfile.fromJson(new JSONObject(json));
+            return uid.equals(p.uid) ? p : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static List<String> strings(Object value) {
+        List<String> out = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object o : (List<?>) value) if (o != null) out.add(String.valueOf(o));
+        } else if (value instanceof JSONArray) {
+            JSONArray a = (JSONArray) value;
+            for (int i = 0; i < a.length(); i++) if (!a.isNull(i)) out.add(a.optString(i));
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static String optString(JSONObject o, String key) {
+        return o.isNull(key) ? null : o.optString(key);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.eventlink;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ChatPipeline: histogram quantiles and which stage gets the stats for a message.
+ */
+public class ChatPipelineTest {
+
+    private static final long US = 1000;   // nanos
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        ChatPipeline.Histogram h = new ChatPipeline.Histogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.quantileMicros(0.5));
+        assertEquals(0, h.quantileMicros(1.0));
+    }
+
+    @Test
+    public void bucketsArePowersOfTwoMicros() {
+        ChatPipeline.Histogram h = new ChatPipeline.Histogram();
+        h.record(0);
+        assertEquals(1, h.quantileMicros(1.0));      // 0us is below 1us
+        h.record(999);                               // still 0us
+        assertEquals(1, h.quantileMicros(1.0));
+        h.record(1 * US);
+        assertEquals(2, h.quantileMicros(1.0));
+        h.record(3 * US);
+        assertEquals(4, h.quantileMicros(1.0));
+        h.record(4 * US);
+        assertEquals(8, h.quantileMicros(1.0));
+        h.record(-5 * US);                           // clock went backwards: counted as 0us
+        assertEquals(6, h.count());
+        assertEquals(1, h.quantileMicros(0.5));
+    }
+
+    @Test
+    public void quantilesAreUpperBoundsOfTheirBucket() {
+        ChatPipeline.Histogram h = new ChatPipeline.Histogram();
+        for (int i = 0; i < 90; i++) h.record(100 * US);      // bucket < 128us
+        for (int i = 0; i < 9; i++) h.record(5_000 * US);     // bucket < 8192us
+        h.record(70_000 * US);                                // bucket < 131072us
+        assertEquals(100, h.count());
+        assertEquals(128, h.quantileMicros(0.50));
+        assertEquals(128, h.quantileMicros(0.90));
+        assertEquals(8192, h.quantileMicros(0.91));
+        assertEquals(8192, h.quantileMicros(0.99));
+        assertEquals(131072, h.quantileMicros(1.0));
+        assertEquals(128, h.quantileMicros(0.0));
+    }
+
+    @Test
+    public void slowLatenciesLandInTheOpenBucket() {
+        ChatPipeline.Histogram h = new ChatPipeline.Histogram();
+        h.record(10L * 60 * 1_000_000 * US);   // ten minutes
+        assertEquals(1L << 27, h.quantileMicros(1.0));
+        assertEquals(1, h.count());
+    }
+
+    @Test
+    public void resetClearsTheCounts() {
+        ChatPipeline.Histogram h = new ChatPipeline.Histogram();
+        h.record(50 * US);
+        h.reset();
+        assertEquals(0, h.count());
+    }
+
+    @Test
+    public void appendToFormatsEachQuantile() {
+        ChatPipeline.Histogram h = new ChatPipeline.Histogram();
+        h.record(100 * US);
+        h.record(5_000 * US);
+        h.record(3_000_000 * US);
+        StringBuilder sb = new StringBuilder();
+        h.appendTo(sb);
+        assertEquals("n=3 p50<8.2ms p90<4.2s p99<4.2s max<4.2s", sb.toString());
+    }
+
+    @Test
+    public void firstAnsweringStageTakesTheMessage() {
+        ChatPipeline.resetStats();
+        List<String> seen = new ArrayList<>();
+        ChatPipeline p = new ChatPipeline()
+                .add("t-first", turn -> { seen.add("first"); return false; })
+                .add("t-second", turn -> { seen.add("second"); turn.replied(); turn.replied(); return true; })
+                .add("t-third", turn -> { seen.add("third"); return true; });
+        ChatPipeline.Turn turn = p.run("hello");
+        assertEquals("hello", turn.text);
+        assertEquals(List.of("first", "second"), seen);
+
+        String stats = ChatPipeline.dumpStats();
+        assertTrue(stats, stats.contains("t-first: calls=1 answered=0 | handle n=1"));
+        assertTrue(stats, stats.contains("t-second: calls=1 answered=1 | handle n=1"));
+        // the second replied() is ignored
+        assertTrue(stats, stats.contains(" | reply n=1 "));
+        assertTrue(stats, stats.contains("t-third: calls=0 answered=0"));
+    }
+
+    @Test
+    public void unansweredMessagesReportNoReply() {
+        ChatPipeline.resetStats();
+        ChatPipeline.Turn turn = new ChatPipeline().add("t-none", t -> false).run("anything");
+        turn.replied();   // after every stage passed: nothing to record against
+        assertFalse(ChatPipeline.dumpStats(), ChatPipeline.dumpStats().contains("reply"));
+    }
+}
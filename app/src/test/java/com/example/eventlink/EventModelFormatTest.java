@@ -0,0 +1,101 @@
+package com.example.eventlink;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * EventModelFormat: the shipped JSON model survives a binary write/read unchanged.
+ */
+public class EventModelFormatTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    static EventModelFormat.Model shipped() throws Exception {
+        return EventModelFormat.fromJson(
+                IntentLocalClassifierTest.read(IntentLocalClassifierTest.ASSETS + EventModelFormat.JSON_ASSET));
+    }
+
+    @Test
+    public void writeThenReadRoundTrips() throws Exception {
+        EventModelFormat.Model m = shipped();
+        File f = tmp.newFile("weights_events.bin");
+        EventModelFormat.write(m, f);
+        assertModelEquals(m, EventModelFormat.read(EventModelFormat.mapFile(f)));
+    }
+
+    @Test
+    public void fromJsonBuildsSortedRows() throws Exception {
+        EventModelFormat.Model m = shipped();
+        assertEquals(60, m.metas.length);
+        assertEquals(m.idf.length, m.vocab.size());
+        assertEquals(1, m.analyzer.ngramMin);
+        assertEquals(2, m.analyzer.ngramMax);
+        assertTrue(m.analyzer.englishStopWords);
+        for (int e = 0; e < m.metas.length; e++) {
+            if (e > 0) assertTrue(m.metas[e - 1].id.compareTo(m.metas[e].id) < 0);
+            assertTrue(m.rowStart[e + 1] > m.rowStart[e]);
+            for (int i = m.rowStart[e] + 1; i < m.rowStart[e + 1]; i++) {
+                assertTrue(m.rowTerms[i - 1] < m.rowTerms[i]);
+            }
+        }
+        assertEquals(m.rowTerms.length, m.rowStart[m.metas.length]);
+        assertEquals("E001", m.metas[0].id);
+        assertEquals("AI Summit 2025", m.metas[0].name);
+        assertTrue(m.vocab.find("ai summit") >= 0);
+    }
+
+    @Test
+    public void readRejectsOtherVersions() throws Exception {
+        File f = tmp.newFile("weights_events.bin");
+        EventModelFormat.write(shipped(), f);
+        byte[] bytes = Files.readAllBytes(f.toPath());
+
+        ByteBuffer b = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(4, EventModelFormat.VERSION + 1);
+        try {
+            EventModelFormat.read(b);
+            fail("read a newer version");
+        } catch (IOException expected) {
+            // version check
+        }
+
+        b.putInt(0, 0);
+        try {
+            EventModelFormat.read(b);
+            fail("read without magic");
+        } catch (IOException expected) {
+            // magic check
+        }
+    }
+
+    static void assertModelEquals(EventModelFormat.Model expected, EventModelFormat.Model actual) {
+        assertArrayEquals(expected.vocab.pool, actual.vocab.pool);
+        assertArrayEquals(expected.vocab.start, actual.vocab.start);
+        assertArrayEquals(expected.idf, actual.idf, 0f);
+        assertArrayEquals(expected.rowStart, actual.rowStart);
+        assertArrayEquals(expected.rowTerms, actual.rowTerms);
+        assertArrayEquals(expected.rowWeights, actual.rowWeights, 0f);
+        assertEquals(expected.analyzer.ngramMin, actual.analyzer.ngramMin);
+        assertEquals(expected.analyzer.ngramMax, actual.analyzer.ngramMax);
+        assertEquals(expected.analyzer.englishStopWords, actual.analyzer.englishStopWords);
+        assertEquals(expected.metas.length, actual.metas.length);
+        for (int e = 0; e < expected.metas.length; e++) {
+            EventRecommender.EventMeta a = expected.metas[e], b = actual.metas[e];
+            assertEquals(a.id, b.id);
+            assertEquals(a.name, b.name);
+            assertEquals(a.category, b.category);
+            assertEquals(a.imageUrl, b.imageUrl);
+            assertEquals(a.date, b.date);
+        }
+    }
+}
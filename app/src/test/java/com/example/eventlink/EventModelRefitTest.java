@@ -0,0 +1,110 @@
+package com.example.eventlink;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * EventModelRefit: refits keep the bundled catalog next to the created events.
+ */
+public class EventModelRefitTest {
+
+    private static EventModelFormat.Model shipped;
+
+    @BeforeClass
+    public static void loadShipped() throws Exception {
+        shipped = EventModelFormatTest.shipped();
+    }
+
+    static List<EventModelRefit.EventDoc> created(int n) {
+        String[][] events = {
+                {"c1", "Jazz Night", "Live jazz by the river with local bands", "Music"},
+                {"c2", "Python Workshop", "Hands on python for beginners", "Technology"},
+                {"c3", "Charity Run", "Five kilometre run for the animal shelter", "Sports"},
+                {"c4", "Street Food Fair", "Tasting stalls from the old town", "Food"},
+                {"c5", "Chess Open", "Rapid chess tournament for all levels", "Games"},
+                {"c6", "AI Ethics Panel", "Machine learning researchers on fairness", "AI/ML"},
+        };
+        List<EventModelRefit.EventDoc> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String[] e = events[i];
+            out.add(new EventModelRefit.EventDoc(e[0], e[1], e[2], e[3], "2026-11-0" + (i + 1), ""));
+        }
+        return out;
+    }
+
+    static EventModelRefit.EventSource source(List<EventModelRefit.EventDoc> docs) {
+        return sink -> docs.forEach(sink);
+    }
+
+    @Test
+    public void refitKeepsTheBundledCatalog() throws Exception {
+        EventModelFormat.Model m = EventModelRefit.fit(
+                EventModelRefit.withCatalog(shipped, source(created(6))), shipped.analyzer);
+        assertNotNull(m);
+        Set<String> ids = new HashSet<>();
+        for (EventRecommender.EventMeta meta : m.metas) ids.add(meta.id);
+        for (EventRecommender.EventMeta meta : shipped.metas) assertTrue(meta.id, ids.contains(meta.id));
+        for (int i = 1; i <= 6; i++) assertTrue(ids.contains("c" + i));
+        assertEquals(shipped.metas.length + 6, m.metas.length);
+
+        EventRecommender r = new EventRecommender(m);
+        List<EventRecommender.RankedEvent> ai = r.recommend(Collections.singletonList("AI/ML"), 20);
+        Set<String> ranked = new HashSet<>();
+        for (EventRecommender.RankedEvent re : ai) ranked.add(re.meta.id);
+        assertTrue(ranked.contains("E001"));
+        assertTrue(ranked.contains("c6"));
+    }
+
+    @Test
+    public void bundledRowsKeepTheirDirection() throws Exception {
+        EventModelFormat.Model m = EventModelRefit.fit(
+                EventModelRefit.withCatalog(shipped, source(created(5))), shipped.analyzer);
+        Map<String, Integer> refitRow = new HashMap<>();
+        for (int e = 0; e < m.metas.length; e++) refitRow.put(m.metas[e].id, e);
+
+        for (int e = 0; e < shipped.metas.length; e++) {
+            Map<String, Float> a = row(shipped, e), b = row(m, refitRow.get(shipped.metas[e].id));
+            assertEquals(shipped.metas[e].id, a.keySet(), b.keySet());
+            double dot = 0;
+            for (Map.Entry<String, Float> t : a.entrySet()) dot += t.getValue() * b.get(t.getKey());
+            assertTrue(shipped.metas[e].id + " cosine " + dot, dot > 0.995);
+        }
+    }
+
+    @Test
+    public void createdEventReplacesBundledId() throws Exception {
+        List<EventModelRefit.EventDoc> docs = created(5);
+        docs.add(new EventModelRefit.EventDoc("E001", "Renamed Summit", "Now a cooking class", "Food", "2026-12-01", ""));
+        EventModelFormat.Model m = EventModelRefit.fit(EventModelRefit.withCatalog(shipped, source(docs)), shipped.analyzer);
+        int n = 0;
+        for (EventRecommender.EventMeta meta : m.metas) {
+            if (!"E001".equals(meta.id)) continue;
+            n++;
+            assertEquals("Renamed Summit", meta.name);
+        }
+        assertEquals(1, n);
+        assertEquals(shipped.metas.length + 5, m.metas.length);
+    }
+
+    @Test
+    public void tooFewCreatedEventsKeepTheShippedModel() throws Exception {
+        assertNull(EventModelRefit.fit(EventModelRefit.withCatalog(shipped, source(created(4))), shipped.analyzer));
+        assertNotNull(EventModelRefit.fit(source(created(5)), shipped.analyzer));
+    }
+
+    private static Map<String, Float> row(EventModelFormat.Model m, int e) {
+        Map<String, Float> out = new HashMap<>();
+        for (int i = m.rowStart[e]; i < m.rowStart[e + 1]; i++) out.put(m.vocab.term(m.rowTerms[i]), m.rowWeights[i]);
+        return out;
+    }
+}
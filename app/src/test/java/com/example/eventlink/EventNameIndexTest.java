@@ -0,0 +1,168 @@
+package com.example.eventlink;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * EventNameIndex: trigram scores, tombstoned updates and compaction, checked against a brute-force
+ * scan of the live names.
+ */
+public class EventNameIndexTest {
+
+    private static final String[] NAMES = {
+            "AI Summit 2025", "Jazz Night", "Jazz Brunch", "Python Workshop", "Charity Run",
+            "Street Food Fair", "Chess Open", "Robotics Expo", "Cloud Summit", "Night Market",
+    };
+
+    private static EventNameIndex catalog() {
+        EventNameIndex idx = new EventNameIndex();
+        for (int i = 0; i < NAMES.length; i++) idx.put("e" + i, NAMES[i]);
+        return idx;
+    }
+
+    @Test
+    public void exactNameScoresOne() {
+        List<EventNameIndex.Match> m = catalog().search("jazz night", 3);
+        assertEquals("e1", m.get(0).id);
+        assertEquals(1.0, m.get(0).score, 1e-12);
+        assertEquals("Jazz Night", m.get(0).name);
+    }
+
+    @Test
+    public void typosStillMatch() {
+        EventNameIndex idx = catalog();
+        assertEquals("e1", idx.search("jaz nigth", 1).get(0).id);
+        assertEquals("e3", idx.search("pyton workshop", 1).get(0).id);
+        assertEquals("e7", idx.search("robotic expo", 1).get(0).id);
+    }
+
+    @Test
+    public void scoreIsContainmentPlusJaccard() {
+        EventNameIndex idx = catalog();
+        String q = "summit";
+        Set<Long> qg = set(EventNameIndex.grams(q));
+        for (EventNameIndex.Match m : idx.search(q, 10)) {
+            assertEquals(m.name, expectedScore(qg, set(EventNameIndex.grams(m.name))), m.score, 1e-12);
+        }
+        // the shorter name wins on Jaccard
+        List<EventNameIndex.Match> m = idx.search(q, 2);
+        assertEquals("Cloud Summit", m.get(0).name);
+        assertEquals("AI Summit 2025", m.get(1).name);
+    }
+
+    @Test
+    public void resultsStopAtMinScoreAndLimit() {
+        EventNameIndex idx = catalog();
+        assertTrue(idx.search("xylophone quartet", 5).isEmpty());
+        for (EventNameIndex.Match m : idx.search("night", 10)) assertTrue(m.score >= EventNameIndex.MIN_SCORE);
+        assertEquals(1, idx.search("jazz", 1).size());
+        assertTrue(idx.search("jazz", 0).isEmpty());
+        assertTrue(idx.search("", 5).isEmpty());
+        assertTrue(idx.search(null, 5).isEmpty());
+    }
+
+    @Test
+    public void updatesAndRemovalsTombstoneOldNames() {
+        EventNameIndex idx = catalog();
+        idx.put("e1", "Blues Evening");
+        assertTrue(idx.search("jazz night", 5).stream().noneMatch(m -> m.id.equals("e1")));
+        assertEquals("e1", idx.search("blues evening", 1).get(0).id);
+
+        idx.remove("e6");
+        assertTrue(idx.search("chess open", 5).isEmpty());
+        idx.put("e7", null);
+        assertTrue(idx.search("robotics expo", 5).isEmpty());
+        assertEquals(NAMES.length - 2, idx.size());
+        assertEquals(NAMES.length + 1, idx.slotCount());
+
+        idx.remove("missing");
+        idx.put(null, "ignored");
+        assertEquals(NAMES.length - 2, idx.size());
+    }
+
+    @Test
+    public void compactsOnceMostSlotsAreDead() {
+        EventNameIndex idx = new EventNameIndex();
+        for (int i = 0; i < 100; i++) idx.put("e" + i, "Event " + i);
+        // 64 dead of 164 slots: not yet
+        for (int i = 0; i < 64; i++) idx.put("e" + i, "Renamed " + i);
+        assertEquals(164, idx.slotCount());
+        // 65 dead is over 64 but not over half
+        idx.remove("e64");
+        assertEquals(164, idx.slotCount());
+        // past half of the slots dead: rebuilt with the live ones only
+        for (int i = 65; i < 82; i++) idx.remove("e" + i);
+        assertEquals(164, idx.slotCount());   // 82 dead, exactly half
+        idx.remove("e82");
+        assertEquals(81, idx.size());
+        assertEquals(idx.size(), idx.slotCount());
+        assertEquals("e5", idx.search("renamed 5", 1).get(0).id);
+        assertEquals("e99", idx.search("event 99", 1).get(0).id);
+        assertTrue(idx.search("event 70", 3).stream().noneMatch(m -> m.id.equals("e70")));
+    }
+
+    @Test
+    public void randomEditsMatchBruteForce() {
+        Random rnd = new Random(11);
+        String[] words = {"jazz", "night", "ai", "summit", "chess", "open", "food", "fair", "run", "expo", "2025"};
+        EventNameIndex idx = new EventNameIndex();
+        Map<String, String> live = new HashMap<>();
+        for (int step = 0; step < 3000; step++) {
+            String id = "e" + rnd.nextInt(150);
+            if (rnd.nextInt(4) == 0) {
+                idx.remove(id);
+                live.remove(id);
+            } else {
+                String name = words[rnd.nextInt(words.length)] + " " + words[rnd.nextInt(words.length)];
+                idx.put(id, name);
+                live.put(id, name);
+            }
+            if (step % 100 == 0) {
+                String q = words[rnd.nextInt(words.length)] + " " + words[rnd.nextInt(words.length)];
+                assertSameScores(q, bruteForce(live, q), idx.search(q, live.size() + 1));
+            }
+        }
+        assertEquals(live.size(), idx.size());
+        assertTrue("never compacted", idx.slotCount() < 3000 * 3 / 4);
+    }
+
+    private static void assertSameScores(String q, Map<String, Double> expected, List<EventNameIndex.Match> actual) {
+        Map<String, Double> got = new HashMap<>();
+        for (EventNameIndex.Match m : actual) got.put(m.id, m.score);
+        assertEquals(q, expected.keySet(), got.keySet());
+        for (Map.Entry<String, Double> e : expected.entrySet()) assertEquals(q, e.getValue(), got.get(e.getKey()), 1e-12);
+        for (int i = 1; i < actual.size(); i++) assertTrue(q, actual.get(i - 1).score >= actual.get(i).score);
+    }
+
+    private static Map<String, Double> bruteForce(Map<String, String> live, String q) {
+        Set<Long> qg = set(EventNameIndex.grams(q));
+        Map<String, Double> out = new HashMap<>();
+        for (Map.Entry<String, String> e : live.entrySet()) {
+            double s = expectedScore(qg, set(EventNameIndex.grams(e.getValue())));
+            if (s >= EventNameIndex.MIN_SCORE) out.put(e.getKey(), s);
+        }
+        return out;
+    }
+
+    private static double expectedScore(Set<Long> q, Set<Long> name) {
+        Set<Long> shared = new HashSet<>(q);
+        shared.retainAll(name);
+        Set<Long> union = new HashSet<>(q);
+        union.addAll(name);
+        return 0.8 * shared.size() / q.size() + 0.2 * shared.size() / union.size();
+    }
+
+    private static Set<Long> set(long[] grams) {
+        Set<Long> out = new HashSet<>();
+        for (long g : grams) out.add(g);
+        return out;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.eventlink;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * EventRecommender: the partition and postings scoring paths rank the same events with the same
+ * scores, and recommend() picks one of them.
+ */
+public class EventRecommenderTest {
+
+    private static final List<List<String>> QUERIES = Arrays.asList(
+            Collections.singletonList("AI/ML"),
+            Collections.singletonList("Cybersecurity"),
+            Arrays.asList("Blockchain", "Cloud/DevOps"),
+            Arrays.asList("ai/ml", "iot/hardware", "web/app dev"),
+            Collections.singletonList("Gardening"),
+            Collections.singletonList("dev"),
+            Arrays.asList("AI/ML", "Music"));
+
+    private EventRecommender r;
+
+    @Before
+    public void load() throws Exception {
+        r = new EventRecommender(EventModelFormatTest.shipped());
+    }
+
+    @Test
+    public void pathsAgreeOnTheShippedModel() {
+        assertPathsAgree();
+        assertTrue(r.rankByPath(Collections.singletonList("AI/ML"), 3, true, true).get(0).score > 0);
+    }
+
+    @Test
+    public void pathsAgreeWithLiveChanges() {
+        r.addOrUpdateEvent("live1", "Neural Network Bootcamp", "Hands on deep learning and computer vision",
+                "AI/ML", "2026-11-02", "");
+        r.addOrUpdateEvent("live2", "Community Garden Day", "Planting and composting", "Gardening", "2026-11-03", "");
+        r.addOrUpdateEvent("E002", "Smart Contract Audit Clinic", "Blockchain security reviews", "Blockchain",
+                "2026-11-04", "");
+        r.removeEvent("E001");
+        assertPathsAgree();
+
+        List<EventRecommender.RankedEvent> ai = r.rankByPath(Collections.singletonList("AI/ML"), 60, true, true);
+        assertTrue(ai.stream().anyMatch(e -> e.meta.id.equals("live1")));
+        assertTrue(ai.stream().noneMatch(e -> e.meta.id.equals("E001") || e.meta.id.equals("E002")));
+    }
+
+    @Test
+    public void recommendMatchesBothPaths() {
+        for (List<String> q : QUERIES) {
+            List<EventRecommender.RankedEvent> got = r.recommend(q, 5, true);
+            assertSameRanking(q + " vs partition", r.rankByPath(q, 5, true, false), got);
+            assertSameRanking(q + " vs postings", r.rankByPath(q, 5, true, true), got);
+        }
+    }
+
+    private void assertPathsAgree() {
+        for (List<String> q : QUERIES) {
+            for (boolean strict : new boolean[] {true, false}) {
+                for (int topK : new int[] {1, 3, 10, 100}) {
+                    String what = q + " strict=" + strict + " topK=" + topK;
+                    assertSameRanking(what, r.rankByPath(q, topK, strict, false), r.rankByPath(q, topK, strict, true));
+                }
+            }
+        }
+    }
+
+    /**
+     * Same scores in the same order, and the same events except where scores tie at the cut-off
+     * (the paths visit events in different orders, so ties may be broken differently there).
+     */
+    private static void assertSameRanking(String what, List<EventRecommender.RankedEvent> a,
+                                          List<EventRecommender.RankedEvent> b) {
+        assertEquals(what, a.size(), b.size());
+        if (a.isEmpty()) return;
+        for (int i = 0; i < a.size(); i++) assertEquals(what + " #" + i, a.get(i).score, b.get(i).score, 1e-9);
+        double cutoff = a.get(a.size() - 1).score;
+        Map<String, Double> above = new HashMap<>();
+        for (EventRecommender.RankedEvent e : a) if (e.score > cutoff + 1e-9) above.put(e.meta.id, e.score);
+        for (EventRecommender.RankedEvent e : b) {
+            if (e.score <= cutoff + 1e-9) continue;
+            Double expected = above.remove(e.meta.id);
+            assertNotNull(what + " extra " + e.meta.id, expected);
+            assertEquals(what + " " + e.meta.id, expected, e.score, 1e-9);
+        }
+        assertTrue(what + " missing " + above.keySet(), above.isEmpty());
+    }
+}
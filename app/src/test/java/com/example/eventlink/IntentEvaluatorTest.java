@@ -0,0 +1,68 @@
+package com.example.eventlink;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * IntentEvaluator: the date/time rule, the model path and the prediction cache.
+ */
+public class IntentEvaluatorTest {
+
+    private static IntentLocalClassifier clf;
+    private IntentEvaluator evaluator;
+
+    @BeforeClass
+    public static void loadModel() throws Exception {
+        IntentLocalClassifierTest.loadModel();
+        clf = IntentLocalClassifierTest.clf;
+    }
+
+    @Before
+    public void newEvaluator() {
+        evaluator = new IntentEvaluator(clf, ClassifierHolder.CONFIDENCE_THRESHOLD);
+    }
+
+    @Test
+    public void dateTimeQuestionsAreOverridden() {
+        String[] questions = {
+                "When is the AI Summit?", "what time does the hackathon start", "date of the music fest",
+                "schedule for the robotics expo", "what's the start time", "when does it begin",
+                "what will happen on friday", "time of the chess open",
+        };
+        for (String q : questions) {
+            IntentLocalClassifier.Prediction p = evaluator.evaluate(q);
+            assertEquals(q, "event_date_time", p.top1);
+            assertEquals(q, 0.98, p.top1Prob, 0.0);
+            assertEquals(q, "out_of_scope", p.top2);
+            assertEquals(q, "event_date_time", evaluator.preview(q).top1);
+        }
+    }
+
+    @Test
+    public void otherQuestionsGoToTheModel() {
+        String[] questions = {"what is my email", "describe the ai summit", "hello there", "tell me a joke",
+                "whenever you like", "update my profile"};
+        for (String q : questions) {
+            IntentLocalClassifier.Prediction expected = clf.predict(IntentLocalClassifier.normalize(q),
+                    ClassifierHolder.CONFIDENCE_THRESHOLD, null);
+            assertEquals(q, expected.top1, evaluator.evaluate(q).top1);
+            assertEquals(q, expected.top1, evaluator.preview(q).top1);
+        }
+    }
+
+    @Test
+    public void normalizedRepeatsHitTheCache() {
+        IntentLocalClassifier.Prediction first = evaluator.evaluate("What is my email?");
+        assertSame(first, evaluator.evaluate("what is my   email"));
+        assertSame(evaluator.evaluate("when is jazz night"), evaluator.evaluate("When is Jazz Night?"));
+        assertEquals(2, evaluator.cacheHits());
+        assertEquals(2, evaluator.cacheMisses());
+
+        evaluator.preview("what is my email");
+        assertEquals(2, evaluator.cacheHits());
+        assertEquals(2, evaluator.cacheMisses());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.eventlink;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * IntentLocalClassifier against the shipped intent model and the labelled parity utterances.
+ */
+public class IntentLocalClassifierTest {
+
+    static final String ASSETS = "src/main/assets/";
+
+    /** More chat phrasings per class, in the style the model was trained on. */
+    private static final String[] CHAT_UTTERANCES = {
+            "what category is the cloud summit", "which domain is the hackathon",
+            "describe the robotics expo", "what is the ai summit about",
+            "where is the devops workshop", "venue of the music fest",
+            "what is the event called", "name of the event on saturday",
+            "hello", "hey there", "good afternoon",
+            "what is my email", "show my mail",
+            "where am i", "my current location",
+            "what is my name", "tell me my full name",
+            "tell me a joke", "what is the weather tomorrow", "book a table for two",
+    };
+
+    private static final String[] JUNK = {"qwzx vbnm", "xyzzy plugh", "こんにちは", "zzkq wvvx qqjj"};
+
+    static IntentLocalClassifier clf;
+    static Map<String, String> labelled;   // utterance -> class, from the parity file's # headings
+
+    @BeforeClass
+    public static void loadModel() throws Exception {
+        clf = new IntentLocalClassifier(IntentLocalClassifier.fromJson(read(ASSETS + "intent_model_android.json")));
+        labelled = readLabelled(ASSETS + "intent_parity_utterances.txt");
+        assertFalse(labelled.isEmpty());
+    }
+
+    @Test
+    public void gateNeverOverridesLabelledUtterances() {
+        List<String> corpus = new ArrayList<>(labelled.keySet());
+        corpus.addAll(Arrays.asList(CHAT_UTTERANCES));
+        corpus.addAll(Arrays.asList(JUNK));
+
+        IntentLocalClassifier.GateReport r = clf.checkGate(corpus, ClassifierHolder.CONFIDENCE_THRESHOLD, null);
+        assertEquals(corpus.size(), r.n);
+        assertEquals(JUNK.length, r.gated);
+        assertEquals(r.toString(), 0, r.overridden);
+    }
+
+    @Test
+    public void inScopeUtterancesClearMinVocabCoverage() {
+        for (Map.Entry<String, String> e : labelled.entrySet()) {
+            if ("out_of_scope".equals(e.getValue())) continue;
+            assertTrue(e.getKey(), clf.vocabCoverage(e.getKey()) >= IntentLocalClassifier.MIN_VOCAB_COVERAGE);
+        }
+        for (String u : CHAT_UTTERANCES) {
+            assertTrue(u, clf.vocabCoverage(u) >= IntentLocalClassifier.MIN_VOCAB_COVERAGE);
+        }
+    }
+
+    @Test
+    public void textBelowMinVocabCoverageIsGated() {
+        long before = clf.gatedCount();
+        for (String u : JUNK) {
+            assertTrue(u, clf.vocabCoverage(u) < IntentLocalClassifier.MIN_VOCAB_COVERAGE);
+            IntentLocalClassifier.Prediction p = clf.predict(u, ClassifierHolder.CONFIDENCE_THRESHOLD, null);
+            assertEquals("out_of_scope", p.top1);
+            assertEquals(1.0, p.top1Prob, 0.0);
+        }
+        assertEquals(before + JUNK.length, clf.gatedCount());
+
+        // the unthresholded prediction is the plain model, never gated
+        clf.predict(JUNK[0]);
+        clf.preview(JUNK[0], ClassifierHolder.CONFIDENCE_THRESHOLD, null);
+        assertEquals(before + JUNK.length, clf.gatedCount());
+    }
+
+    @Test
+    public void textWithoutNgramsHasZeroCoverage() {
+        assertEquals(0.0, clf.vocabCoverage(""), 0.0);
+        assertEquals(0.0, clf.vocabCoverage(null), 0.0);
+    }
+
+    @Test
+    public void batchMatchesSerialPredict() {
+        List<String> xs = batchInputs();
+        List<IntentLocalClassifier.Prediction> batch = clf.predictBatch(xs);
+        assertEquals(xs.size(), batch.size());
+        for (int i = 0; i < xs.size(); i++) assertSamePrediction(xs.get(i), clf.predict(xs.get(i)), batch.get(i));
+    }
+
+    @Test
+    public void thresholdedBatchMatchesSerialPredict() {
+        List<String> xs = batchInputs();
+        Map<String, Double> perClass = new LinkedHashMap<>();
+        perClass.put("user_email", 0.9);       // pushes some confident rows under their threshold
+        perClass.put("general_greeting", 0.3);
+        double thr = ClassifierHolder.CONFIDENCE_THRESHOLD;
+
+        long before = clf.gatedCount();
+        List<IntentLocalClassifier.Prediction> batch = clf.predictBatch(xs, thr, perClass);
+        long batchGated = clf.gatedCount() - before;
+        assertEquals(xs.size(), batch.size());
+
+        before = clf.gatedCount();
+        int thresholded = 0;
+        for (int i = 0; i < xs.size(); i++) {
+            IntentLocalClassifier.Prediction serial = clf.predict(xs.get(i), thr, perClass);
+            assertSamePrediction(xs.get(i), serial, batch.get(i));
+            if ("out_of_scope".equals(serial.top1) && !"out_of_scope".equals(clf.predict(xs.get(i)).top1)) thresholded++;
+        }
+        assertEquals(clf.gatedCount() - before, batchGated);
+        assertTrue("no gated rows", batchGated > 0);
+        assertTrue("no thresholded rows", thresholded > 0);
+    }
+
+    /** Labelled, chat, junk and empty inputs, repeated past one fork/join block. */
+    private static List<String> batchInputs() {
+        List<String> one = new ArrayList<>(labelled.keySet());
+        one.addAll(Arrays.asList(CHAT_UTTERANCES));
+        one.addAll(Arrays.asList(JUNK));
+        one.add("");
+        one.add("   ");
+        one.add(null);
+        List<String> xs = new ArrayList<>();
+        while (xs.size() < 1000) xs.addAll(one);
+        return xs;
+    }
+
+    private static void assertSamePrediction(String text, IntentLocalClassifier.Prediction expected,
+                                             IntentLocalClassifier.Prediction actual) {
+        assertEquals(text, expected.top1, actual.top1);
+        assertEquals(text, expected.top1Prob, actual.top1Prob, 0.0);
+        assertEquals(text, expected.top2, actual.top2);
+        assertEquals(text, expected.top2Prob, actual.top2Prob, 0.0);
+        assertArrayEquals(text, expected.probs, actual.probs, 0.0);
+    }
+
+    static String read(String path) throws Exception {
+        return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+
+    static Map<String, String> readLabelled(String path) throws Exception {
+        Map<String, String> out = new LinkedHashMap<>();
+        String label = null;
+        for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (line.startsWith("#")) {
+                label = line.substring(1).trim();
+                continue;
+            }
+            if (label != null) out.put(line, label);
+        }
+        return out;
+    }
+}
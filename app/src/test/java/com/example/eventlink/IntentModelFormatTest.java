@@ -0,0 +1,101 @@
+package com.example.eventlink;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * IntentModelFormat: the shipped JSON model survives a binary write/read, weights rounded to float.
+ */
+public class IntentModelFormatTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static IntentModelFormat.Model json;
+
+    @BeforeClass
+    public static void loadJson() throws Exception {
+        IntentLocalClassifierTest.loadModel();
+        json = IntentLocalClassifier.fromJson(
+                IntentLocalClassifierTest.read(IntentLocalClassifierTest.ASSETS + "intent_model_android.json"));
+    }
+
+    private IntentModelFormat.Model roundTrip() throws Exception {
+        File f = tmp.newFile(IntentModelFormat.BINARY_ASSET);
+        IntentModelFormat.write(json, f);
+        return IntentModelFormat.read(EventModelFormat.mapFile(f));
+    }
+
+    @Test
+    public void writeThenReadRoundTrips() throws Exception {
+        IntentModelFormat.Model m = roundTrip();
+        assertArrayEquals(json.classes, m.classes);
+        assertArrayEquals(json.vocab.pool, m.vocab.pool);
+        assertArrayEquals(json.vocab.start, m.vocab.start);
+        assertEquals(json.analyzer, m.analyzer);
+        assertEquals(json.nMin, m.nMin);
+        assertEquals(json.nMax, m.nMax);
+        assertFloats(json.idf, m.idf);
+        assertFloats(json.coefT, m.coefT);
+        assertFloats(json.intercept, m.intercept);
+    }
+
+    @Test
+    public void floatWeightsKeepEveryLabelledPrediction() throws Exception {
+        IntentLocalClassifier fromBinary = new IntentLocalClassifier(roundTrip());
+        for (Map.Entry<String, String> e : IntentLocalClassifierTest.labelled.entrySet()) {
+            String u = e.getKey();
+            IntentLocalClassifier.Prediction a = IntentLocalClassifierTest.clf.predict(u), b = fromBinary.predict(u);
+            assertEquals(u, a.top1, b.top1);
+            assertEquals(u, a.top1Prob, b.top1Prob, 1e-5);
+        }
+    }
+
+    @Test
+    public void weightsTakeFourBytesEach() throws Exception {
+        File f = tmp.newFile(IntentModelFormat.BINARY_ASSET);
+        IntentModelFormat.write(json, f);
+        long header = 4L * 8 + 4L * json.vocab.start.length + 2L * json.vocab.pool.length;
+        for (String c : json.classes) header += 4 + 2L * c.length();
+        assertEquals(header + 4L * (json.idf.length + json.coefT.length + json.intercept.length), f.length());
+    }
+
+    @Test
+    public void readRejectsOtherVersions() throws Exception {
+        File f = tmp.newFile(IntentModelFormat.BINARY_ASSET);
+        IntentModelFormat.write(json, f);
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(f.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+
+        b.putInt(4, 1);   // version 1 stored doubles
+        try {
+            IntentModelFormat.read(b);
+            fail("read version 1");
+        } catch (IOException expected) {
+            // version check
+        }
+
+        b.putInt(0, 0);
+        try {
+            IntentModelFormat.read(b);
+            fail("read without magic");
+        } catch (IOException expected) {
+            // magic check
+        }
+    }
+
+    private static void assertFloats(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) assertEquals(i + "", (float) expected[i], actual[i], 0.0);
+    }
+}
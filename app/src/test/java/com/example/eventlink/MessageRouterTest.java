@@ -0,0 +1,152 @@
+package com.example.eventlink;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * MessageRouter against the chain of regex and contains() checks it replaced: same routes in the
+ * same priority order, except that phrases now have to match whole words.
+ */
+public class MessageRouterTest {
+
+    private static final MessageRouter ROUTER = MessageRouter.chat();
+
+    private static final String[] MESSAGES = {
+            "where am i", "Where am I right now?", "show my location", "what's my current location",
+            "my address please", "where are we",
+            "what time is the AI Summit", "when does it start", "when is jazz night", "date of the music fest",
+            "which day is the hackathon", "schedule for robotics expo", "where is the devops workshop",
+            "venue of the chess open", "where will the food fair happen", "tell me about the ai summit",
+            "describe the hackathon", "details on jazz night", "what category is the cloud summit",
+            "what kind of event is the expo", "which domain is the hackathon",
+            "what's my name", "who am i", "show my email", "my profile", "my account details",
+            "my registered events", "show my registrations", "what did i register for", "list my events",
+            "hello", "tell me a joke", "", "   ", "?!",
+            "when and where is the ai summit", "where is my location", "my events this week, what time?",
+    };
+
+    private static List<String> corpus;
+
+    @BeforeClass
+    public static void loadCorpus() throws Exception {
+        corpus = new ArrayList<>(Arrays.asList(MESSAGES));
+        corpus.addAll(IntentLocalClassifierTest.readLabelled(
+                IntentLocalClassifierTest.ASSETS + "intent_parity_utterances.txt").keySet());
+    }
+
+    @Test
+    public void matchesTheOldChainOnWholeWordMessages() {
+        int compared = 0;
+        for (String msg : corpus) {
+            MessageRouter.Decision d = ROUTER.route(msg);
+            MessageRouter.Route expected = Baseline.route(msg);
+            assertEquals(msg, expected, d.route);
+            if (d.route.isEventField()) assertEquals(msg, Baseline.eventName(msg), d.eventName);
+            compared++;
+        }
+        assertTrue(compared > MESSAGES.length);
+    }
+
+    @Test
+    public void phrasesMatchWholeWordsOnly() {
+        // the old contains() checks took these as user routes
+        assertEquals(MessageRouter.Route.REGISTERED_EVENTS, Baseline.route("my eventsx"));
+        assertEquals(MessageRouter.Route.NONE, ROUTER.route("my eventsx").route);
+        assertEquals(MessageRouter.Route.USER_DETAILS, Baseline.route("summy namesake"));
+        assertEquals(MessageRouter.Route.NONE, ROUTER.route("summy namesake").route);
+        assertEquals(MessageRouter.Route.USER_LOCATION, Baseline.route("emy locationx"));
+        assertEquals(MessageRouter.Route.NONE, ROUTER.route("emy locationx").route);
+
+        assertEquals(MessageRouter.Route.REGISTERED_EVENTS, ROUTER.route("show my events?").route);
+        assertEquals(MessageRouter.Route.USER_DETAILS, ROUTER.route("My-Name").route);
+    }
+
+    @Test
+    public void earlierRoutesWin() {
+        // user location beats the event location words it contains
+        assertEquals(MessageRouter.Route.USER_LOCATION, ROUTER.route("where am i, what's the venue").route);
+        // time beats date, date beats location
+        assertEquals(MessageRouter.Route.EVENT_TIME, ROUTER.route("when and what time is it").route);
+        assertEquals(MessageRouter.Route.EVENT_DATE, ROUTER.route("where and when is it").route);
+        // event fields beat the user routes
+        assertEquals(MessageRouter.Route.EVENT_DESC, ROUTER.route("tell me about my events").route);
+    }
+
+    @Test
+    public void overlappingPhrasesStillMatch() {
+        // "kind of event" after a partial "what kind of" needs the failure links
+        assertEquals(MessageRouter.Route.EVENT_CATEGORY, ROUTER.route("what kind of event is it").route);
+        assertEquals(MessageRouter.Route.USER_LOCATION, ROUTER.route("my my location").route);
+        assertEquals(MessageRouter.Route.REGISTERED_EVENTS, ROUTER.route("what did what did i register").route);
+    }
+
+    @Test
+    public void eventNameDropsFillerWords() {
+        assertEquals("ai summit", ROUTER.route("When is the AI Summit").eventName);
+        assertEquals("ai summit?", ROUTER.route("When is the AI Summit?").eventName);   // punctuation stays, as before
+        assertEquals("jazz night", ROUTER.route("what time does Jazz   Night start").eventName);
+        assertEquals("robotics expo 2025", ROUTER.route("venue of robotics expo 2025").eventName);
+        assertNull(ROUTER.route("when is it").eventName);
+        assertNull(ROUTER.route(null).eventName);
+        assertEquals(MessageRouter.Route.NONE, ROUTER.route(null).route);
+    }
+
+    /** The routing ChatActivity did before MessageRouter, kept verbatim as the reference. */
+    private static final class Baseline {
+
+        static MessageRouter.Route route(String text) {
+            String lower = text.toLowerCase(Locale.ROOT);
+            if (lower.contains("where am i") || lower.contains("my location") ||
+                    lower.contains("current location") || lower.contains("my address") ||
+                    lower.contains("where are we")) {
+                return MessageRouter.Route.USER_LOCATION;
+            }
+            MessageRouter.Route lite = quickClassify(text);
+            if (lite != MessageRouter.Route.NONE) return lite;
+            if (isUserDetailsQuery(text)) return MessageRouter.Route.USER_DETAILS;
+            if (isRegisteredEventsQuery(text)) return MessageRouter.Route.REGISTERED_EVENTS;
+            return MessageRouter.Route.NONE;
+        }
+
+        static MessageRouter.Route quickClassify(String msg) {
+            if (msg == null) return MessageRouter.Route.NONE;
+            msg = msg.toLowerCase(Locale.ROOT);
+            if (msg.matches(".*\\b(what time|time|starts at|start at|begin|starting|clock|when does it start)\\b.*")) return MessageRouter.Route.EVENT_TIME;
+            if (msg.matches(".*\\b(when|date|day|schedule|which day|which date)\\b.*")) return MessageRouter.Route.EVENT_DATE;
+            if (msg.matches(".*\\b(where|venue|address|location|place|held|happen|happening)\\b.*")) return MessageRouter.Route.EVENT_LOCATION;
+            if (msg.matches(".*\\b(about|describe|details|summary|information|info|tell me about)\\b.*")) return MessageRouter.Route.EVENT_DESC;
+            if (msg.matches(".*\\b(category|type|domain|kind of event|what kind of)\\b.*")) return MessageRouter.Route.EVENT_CATEGORY;
+            return MessageRouter.Route.NONE;
+        }
+
+        static String eventName(String msg) {
+            if (msg == null) return null;
+            msg = msg.toLowerCase(Locale.ROOT);
+            msg = msg.replaceAll("\\b(when|what|which|time|date|day|schedule|is|for|the|event|show|tell|about|on|at|of|start|starts|will|happen|does|do|it|my|me|where|venue|address|location|place|held|category|type|domain|kind)\\b", " ");
+            msg = msg.replaceAll("\\s+", " ").trim();
+            return msg.isEmpty() ? null : msg;
+        }
+
+        static boolean isUserDetailsQuery(String text) {
+            String s = text.toLowerCase(Locale.ROOT);
+            return s.contains("my name") || s.contains("who am i") || s.contains("my email") ||
+                    s.contains("what's my name") || s.contains("my info") ||
+                    s.contains("my profile") || s.contains("my account") ||
+                    s.contains("my details");
+        }
+
+        static boolean isRegisteredEventsQuery(String text) {
+            String s = text.toLowerCase(Locale.ROOT);
+            return s.contains("registered events") || s.contains("my registrations") ||
+                    s.contains("what did i register") || s.contains("my events") ||
+                    s.contains("what i've registered");
+        }
+    }
+}
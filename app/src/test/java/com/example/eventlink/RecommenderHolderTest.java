@@ -0,0 +1,76 @@
+package com.example.eventlink;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * RecommenderHolder reloads: live index changes must survive {@link RecommenderHolder#reset()}.
+ */
+public class RecommenderHolderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void liveChangesSurviveReset() throws Exception {
+        Context ctx = new FilesContext(tmp.newFolder());
+        EventModelFormat.write(catalog(), EventModelFormat.refitFile(ctx));
+
+        EventRecommender before = RecommenderHolder.get(ctx);
+        before.addOrUpdateEvent("live1", "Underwater Basket Weaving", "Weave baskets in the pool",
+                "Arts", "2026-11-02", "");
+        before.removeEvent("e2");
+        assertTrue(before.isIndexed("live1"));
+        assertFalse(before.isIndexed("e2"));
+
+        EventRecommender after = RecommenderHolder.reset().get();
+        assertNotSame(before, after);
+        assertSame(after, RecommenderHolder.peek());
+        assertTrue(after.isIndexed("live1"));
+        assertFalse(after.isIndexed("e2"));
+        assertTrue(after.isIndexed("e1"));
+    }
+
+    private static EventModelFormat.Model catalog() throws Exception {
+        String[][] events = {
+                {"e1", "Jazz Night", "Live jazz by the river", "Music"},
+                {"e2", "Python Workshop", "Hands on python for beginners", "Technology"},
+                {"e3", "Charity Run", "Five kilometre run for the shelter", "Sports"},
+                {"e4", "Street Food Fair", "Tasting stalls from the old town", "Food"},
+                {"e5", "Chess Open", "Rapid chess tournament", "Games"},
+        };
+        return EventModelRefit.fit(sink -> {
+            for (String[] e : events) {
+                sink.accept(new EventModelRefit.EventDoc(e[0], e[1], e[2], e[3], "2026-11-01", ""));
+            }
+        }, new TfidfAnalyzer(1, 2, true));
+    }
+
+    /** Just enough Context for the model loaders: everything lives under dir. */
+    static final class FilesContext extends ContextWrapper {
+        private final File dir;
+
+        FilesContext(File dir) {
+            super(null);
+            this.dir = dir;
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public File getNoBackupFilesDir() {
+            return dir;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.eventlink;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TermTable: String and char-range lookups agree with a HashMap, gaps never match.
+ */
+public class TermTableTest {
+
+    @Test
+    public void findsEveryTermById() {
+        String[] terms = {"ai", "ai summit", "summit", "music", "fest", "music fest", "a", "é"};
+        TermTable t = new TermTable(terms);
+        assertEquals(terms.length, t.size());
+        for (int id = 0; id < terms.length; id++) {
+            assertEquals(terms[id], id, t.find(terms[id]));
+            assertEquals(terms[id], t.term(id));
+        }
+        assertEquals(-1, t.find("summits"));
+        assertEquals(-1, t.find("ai summi"));
+        assertEquals(-1, t.find(""));
+        assertEquals(-1, t.find((String) null));
+        assertNull(t.term(-1));
+        assertNull(t.term(terms.length));
+    }
+
+    @Test
+    public void charRangeLookupsMatchStringLookups() {
+        TermTable t = new TermTable(new String[] {"jazz", "night", "jazz night"});
+        char[] buf = "xx jazz night yy".toCharArray();
+        assertEquals(0, t.find(buf, 3, 4));
+        assertEquals(1, t.find(buf, 8, 5));
+        assertEquals(2, t.find(buf, 3, 10));
+        assertEquals(-1, t.find(buf, 3, 3));
+        assertEquals(2, t.find(TermTable.hash(buf, 3, 10), buf, 3, 10));
+        assertEquals("jazz night".hashCode(), TermTable.hash(buf, 3, 10));
+    }
+
+    @Test
+    public void gapsNeverMatch() {
+        TermTable t = new TermTable(new String[] {"art", null, "film", ""});
+        assertEquals(4, t.size());
+        assertEquals(0, t.find("art"));
+        assertEquals(2, t.find("film"));
+        assertEquals(-1, t.find(""));
+        assertEquals("", t.term(1));
+    }
+
+    @Test
+    public void poolConstructorSharesTheLayout() {
+        TermTable a = new TermTable(new String[] {"run", "charity run", "charity"});
+        TermTable b = new TermTable(a.pool, a.start);
+        for (int id = 0; id < a.size(); id++) assertEquals(id, b.find(a.term(id)));
+    }
+
+    @Test
+    public void agreesWithHashMapOnRandomTerms() {
+        Random rnd = new Random(7);
+        String[] terms = new String[5000];
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < terms.length; i++) {
+            String s;
+            do s = randomWord(rnd); while (expected.containsKey(s));
+            terms[i] = s;
+            expected.put(s, i);
+        }
+        TermTable t = new TermTable(terms);
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assertEquals(e.getKey(), (int) e.getValue(), t.find(e.getKey()));
+        }
+        for (int i = 0; i < 5000; i++) {
+            String s = randomWord(rnd);
+            assertEquals(s, expected.getOrDefault(s, -1).intValue(), t.find(s));
+        }
+    }
+
+    private static String randomWord(Random rnd) {
+        char[] c = new char[1 + rnd.nextInt(6)];
+        for (int i = 0; i < c.length; i++) c[i] = (char) ('a' + rnd.nextInt(6));
+        return new String(c);
+    }
+}
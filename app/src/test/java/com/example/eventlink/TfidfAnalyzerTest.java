@@ -0,0 +1,114 @@
+package com.example.eventlink;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TfidfAnalyzer against scikit-learn's word analyzer: token_pattern (?u)\b\w\w+\b, lowercase,
+ * stop words dropped before n-grams, all unigrams before all bigrams.
+ */
+public class TfidfAnalyzerTest {
+
+    private static final TfidfAnalyzer EVENTS = new TfidfAnalyzer(1, 2, true);
+
+    static List<String> analyze(TfidfAnalyzer a, String text) {
+        List<String> out = new ArrayList<>();
+        a.analyze(text, (buf, off, len) -> out.add(new String(buf, off, len)));
+        return out;
+    }
+
+    @Test
+    public void unigramsThenBigramsOverKeptTokens() {
+        assertEquals(Arrays.asList("ai", "summit", "2025", "ai summit", "summit 2025"),
+                analyze(EVENTS, "The AI Summit, 2025!"));
+    }
+
+    @Test
+    public void stopWordsAreDroppedBeforeNgrams() {
+        assertEquals(Arrays.asList("rock", "roll", "night", "rock roll", "roll night"),
+                analyze(EVENTS, "Rock and Roll for the night"));
+        assertEquals(Arrays.asList("rock", "and", "roll", "rock and", "and roll"),
+                analyze(new TfidfAnalyzer(1, 2, false), "rock and roll"));
+    }
+
+    @Test
+    public void tokensNeedTwoWordCharacters() {
+        assertEquals(Arrays.asList("cd", "don", "foo_bar", "x1", "cd don", "don foo_bar", "foo_bar x1"),
+                analyze(EVENTS, "a b cd don't foo_bar x1 -"));
+        assertEquals(Arrays.asList("ai", "ml", "ai ml"), analyze(EVENTS, "AI/ML"));
+    }
+
+    @Test
+    public void unicodeLettersAreWordCharacters() {
+        assertEquals(Arrays.asList("café", "ünïcode", "café ünïcode"), analyze(EVENTS, "Café  Ünïcode"));
+    }
+
+    @Test
+    public void emptyInputsGiveNoTerms() {
+        assertTrue(analyze(EVENTS, null).isEmpty());
+        assertTrue(analyze(EVENTS, "").isEmpty());
+        assertTrue(analyze(EVENTS, "the of a !!").isEmpty());
+    }
+
+    @Test
+    public void ngramRangeIsClamped() {
+        TfidfAnalyzer a = new TfidfAnalyzer(0, 0, false);
+        assertEquals(1, a.ngramMin);
+        assertEquals(1, a.ngramMax);
+        assertEquals(Arrays.asList("jazz", "night"), analyze(a, "jazz night"));
+        assertEquals(Arrays.asList("jazz night live", "night live music"),
+                analyze(new TfidfAnalyzer(3, 3, false), "jazz night live music"));
+    }
+
+    @Test
+    public void longTextGrowsTheBuffers() {
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            sb.append("word").append(i).append(' ');
+            expected.add("word" + i);
+        }
+        List<String> terms = analyze(new TfidfAnalyzer(1, 1, false), sb.toString());
+        assertEquals(expected, terms);
+        List<String> bigrams = analyze(new TfidfAnalyzer(2, 2, false), sb.toString());
+        assertEquals(199, bigrams.size());
+        assertEquals("word198 word199", bigrams.get(198));
+    }
+
+    /** Every in-vocabulary n-gram of a bundled event's name has a weight in its training vector. */
+    @Test
+    public void shippedNamesMatchTheirEventVectors() throws Exception {
+        JSONObject root = new JSONObject(
+                IntentLocalClassifierTest.read(IntentLocalClassifierTest.ASSETS + EventModelFormat.JSON_ASSET));
+        JSONObject vocab = root.getJSONObject("vectorizer").getJSONObject("vocab");
+        JSONObject vectors = root.getJSONObject("event_vectors");
+        JSONObject events = root.getJSONObject("events");
+        int checked = 0;
+        for (String id : events.keySet()) {
+            JSONObject vec = vectors.getJSONObject(id);
+            for (String term : analyze(EVENTS, events.getJSONObject(id).getString("name"))) {
+                if (!vocab.has(term)) continue;
+                assertTrue(id + ": " + term, vec.has(term));
+                checked++;
+            }
+        }
+        assertTrue(checked > events.length());
+    }
+
+    @Test
+    public void shippedVocabularyIsAnalyzerOutput() throws Exception {
+        EventModelFormat.Model m = EventModelFormatTest.shipped();
+        for (int id = 0; id < m.vocab.size(); id++) {
+            String term = m.vocab.term(id);
+            int n = term.split(" ").length;
+            assertEquals(term, Collections.singletonList(term), analyze(new TfidfAnalyzer(n, n, true), term));
+        }
+    }
+}